@@ -0,0 +1,166 @@
+package com.example.notification.channel;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 渠道隔离舱
+ * 每个渠道独立的并发许可和调用超时，慢渠道只会耗尽自己的许可，不影响其他渠道
+ */
+public class ChannelBulkhead {
+
+    private final NotificationChannel channel;
+    private final ChannelSettings settings;
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter rejectedCounter;
+    private final Counter timeoutCounter;
+
+    public ChannelBulkhead(NotificationChannel channel, ChannelSettings settings, MeterRegistry meterRegistry) {
+        this.channel = channel;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getMaxConcurrent());
+
+        String type = channel.getType();
+        Gauge.builder("notification.channel.inflight", permits,
+                        p -> settings.getMaxConcurrent() - p.availablePermits())
+                .tag("type", type)
+                .description("渠道正在进行的调用数")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("notification.channel.rejected")
+                .tag("type", type)
+                .description("因渠道并发已满被拒绝的调用数")
+                .register(meterRegistry);
+        timeoutCounter = Counter.builder("notification.channel.timeouts")
+                .tag("type", type)
+                .description("渠道调用超时次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 通过隔离舱发送单个通知，并发已满时抛出 ChannelRejectedException
+     */
+    public boolean send(String recipient, String title, String content) {
+        return call(() -> channel.send(recipient, title, content), false);
+    }
+
+    /**
+     * 通过隔离舱批量发送（一次渠道调用），并发已满时抛出 ChannelRejectedException
+     */
+    public List<Boolean> sendBatch(List<String> recipients, String title, String content) {
+        return call(() -> channel.sendBatch(recipients, title, content),
+                Collections.nCopies(recipients.size(), false));
+    }
+
+    public boolean supportsBatch() {
+        return channel.supportsBatch();
+    }
+
+    public int getMaxBatchSize() {
+        return Math.max(1, settings.getMaxBatchSize());
+    }
+
+    public int getMaxConcurrent() {
+        return settings.getMaxConcurrent();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 获取隔离舱统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("inFlight", settings.getMaxConcurrent() - permits.availablePermits());
+        statistics.put("maxConcurrent", settings.getMaxConcurrent());
+        statistics.put("timeoutMs", settings.getTimeoutMs());
+        statistics.put("batchEnabled", channel.supportsBatch());
+        statistics.put("rejected", (long) rejectedCounter.count());
+        statistics.put("timeouts", (long) timeoutCounter.count());
+        return statistics;
+    }
+
+    /**
+     * 获取许可后在独立线程中调用渠道，超时则中断调用并返回失败结果，渠道抛出的异常原样抛给调用方；
+     * 等待许可超时说明渠道已满载，通知没有发出，以拒绝而不是失败返回。
+     * 许可由调用线程自己归还，超时后不响应中断的调用在结束前仍占用许可，并发不会超过上限
+     */
+    private <T> T call(Callable<T> task, T failure) {
+        try {
+            if (!permits.tryAcquire(settings.getAcquireTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                rejectedCounter.increment();
+                throw new ChannelRejectedException(channel.getType());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failure;
+        }
+
+        // 任务开始执行或被放弃时置位，保证许可只归还一次
+        AtomicBoolean started = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    return failure;
+                }
+                try {
+                    return task.call();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        try {
+            return future.get(settings.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(future, started);
+            timeoutCounter.increment();
+            return failure;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException("渠道调用失败: " + channel.getType(), cause);
+        } catch (InterruptedException e) {
+            abandon(future, started);
+            Thread.currentThread().interrupt();
+            return failure;
+        }
+    }
+
+    /**
+     * 放弃调用：中断执行中的任务；任务尚未开始时不会再执行，由这里归还许可
+     */
+    private void abandon(Future<?> future, AtomicBoolean started) {
+        future.cancel(true);
+        if (started.compareAndSet(false, true)) {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.notification.channel;
+
+/**
+ * 渠道隔离舱在 acquire-timeout 内拿不到并发许可时抛出
+ * 表示通知未发送（而不是发送失败），调用方应作为背压处理，而不是记为失败或重试
+ */
+public class ChannelRejectedException extends RuntimeException {
+
+    public ChannelRejectedException(String type) {
+        super("通知渠道繁忙: " + type);
+    }
+}
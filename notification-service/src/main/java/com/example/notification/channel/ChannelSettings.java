@@ -0,0 +1,47 @@
+package com.example.notification.channel;
+
+/**
+ * 单个渠道的配置
+ * 包括隔离舱参数（并发数、超时）和模拟渠道参数（延迟、失败率）
+ */
+public class ChannelSettings {
+    private int maxConcurrent = 100;       // 渠道最大并发调用数
+    private long acquireTimeoutMs = 50;    // 获取并发许可的最长等待时间
+    private long timeoutMs = 2000;         // 单次调用超时时间
+    private boolean batchEnabled = false;  // 是否支持批量发送
+    private int maxBatchSize = 100;        // 单次批量调用的最大接收者数
+    private int maxAttempts = 3;           // 最大尝试次数（含首次发送）
+
+    // 模拟渠道参数
+    private long minLatencyMs = 100;
+    private long maxLatencyMs = 300;
+    private double failureRate = 0.1;
+
+    // Getters and Setters
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+    public long getAcquireTimeoutMs() { return acquireTimeoutMs; }
+    public void setAcquireTimeoutMs(long acquireTimeoutMs) { this.acquireTimeoutMs = acquireTimeoutMs; }
+
+    public long getTimeoutMs() { return timeoutMs; }
+    public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+
+    public boolean isBatchEnabled() { return batchEnabled; }
+    public void setBatchEnabled(boolean batchEnabled) { this.batchEnabled = batchEnabled; }
+
+    public int getMaxBatchSize() { return maxBatchSize; }
+    public void setMaxBatchSize(int maxBatchSize) { this.maxBatchSize = maxBatchSize; }
+
+    public int getMaxAttempts() { return maxAttempts; }
+    public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+
+    public long getMinLatencyMs() { return minLatencyMs; }
+    public void setMinLatencyMs(long minLatencyMs) { this.minLatencyMs = minLatencyMs; }
+
+    public long getMaxLatencyMs() { return maxLatencyMs; }
+    public void setMaxLatencyMs(long maxLatencyMs) { this.maxLatencyMs = maxLatencyMs; }
+
+    public double getFailureRate() { return failureRate; }
+    public void setFailureRate(double failureRate) { this.failureRate = failureRate; }
+}
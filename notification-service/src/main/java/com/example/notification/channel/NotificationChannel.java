@@ -0,0 +1,40 @@
+package com.example.notification.channel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 通知渠道 SPI
+ * 每种通知类型（EMAIL、SMS、PUSH）对应一个渠道实现，注册为 Spring Bean 即可生效
+ */
+public interface NotificationChannel {
+
+    /**
+     * 渠道对应的通知类型（大写，如 EMAIL）
+     */
+    String getType();
+
+    /**
+     * 向单个接收者发送通知
+     */
+    boolean send(String recipient, String title, String content);
+
+    /**
+     * 是否支持一次调用发送给多个接收者
+     */
+    default boolean supportsBatch() {
+        return false;
+    }
+
+    /**
+     * 批量发送通知
+     * 返回结果与 recipients 顺序一一对应；默认实现逐个调用 send
+     */
+    default List<Boolean> sendBatch(List<String> recipients, String title, String content) {
+        List<Boolean> results = new ArrayList<>(recipients.size());
+        for (String recipient : recipients) {
+            results.add(send(recipient, title, content));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.notification.channel;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 通知渠道配置
+ * 默认注册 EMAIL、SMS、PUSH 三个模拟渠道；接入真实渠道时关闭 stub-channels-enabled 并注册自己的实现
+ */
+@Configuration
+@EnableConfigurationProperties(NotificationChannelProperties.class)
+public class NotificationChannelConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "notification.stub-channels-enabled", havingValue = "true", matchIfMissing = true)
+    public NotificationChannel emailChannel(NotificationChannelProperties properties) {
+        return new StubNotificationChannel("EMAIL", properties.getSettings("EMAIL"));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "notification.stub-channels-enabled", havingValue = "true", matchIfMissing = true)
+    public NotificationChannel smsChannel(NotificationChannelProperties properties) {
+        return new StubNotificationChannel("SMS", properties.getSettings("SMS"));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "notification.stub-channels-enabled", havingValue = "true", matchIfMissing = true)
+    public NotificationChannel pushChannel(NotificationChannelProperties properties) {
+        return new StubNotificationChannel("PUSH", properties.getSettings("PUSH"));
+    }
+}
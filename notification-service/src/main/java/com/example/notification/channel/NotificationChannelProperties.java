@@ -0,0 +1,34 @@
+package com.example.notification.channel;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 通知渠道配置（notification.channels.*）
+ * 渠道键使用小写类型名，如 email、sms、push
+ */
+@ConfigurationProperties(prefix = "notification")
+public class NotificationChannelProperties {
+    private String defaultChannel = "EMAIL";  // 未知或未指定类型时使用的渠道
+    private boolean stubChannelsEnabled = true;  // 是否注册内置模拟渠道
+    private Map<String, ChannelSettings> channels = new HashMap<>();
+
+    /**
+     * 获取指定类型的渠道配置，未配置时使用默认值
+     */
+    public ChannelSettings getSettings(String type) {
+        return channels.getOrDefault(type.toLowerCase(), new ChannelSettings());
+    }
+
+    // Getters and Setters
+    public String getDefaultChannel() { return defaultChannel; }
+    public void setDefaultChannel(String defaultChannel) { this.defaultChannel = defaultChannel; }
+
+    public boolean isStubChannelsEnabled() { return stubChannelsEnabled; }
+    public void setStubChannelsEnabled(boolean stubChannelsEnabled) { this.stubChannelsEnabled = stubChannelsEnabled; }
+
+    public Map<String, ChannelSettings> getChannels() { return channels; }
+    public void setChannels(Map<String, ChannelSettings> channels) { this.channels = channels; }
+}
@@ -0,0 +1,102 @@
+package com.example.notification.channel;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 通知渠道注册表
+ * 按通知类型路由到对应渠道的隔离舱，未知类型使用默认渠道
+ */
+@Component
+public class NotificationChannelRegistry {
+
+    @Autowired
+    private List<NotificationChannel> channels;
+
+    @Autowired
+    private NotificationChannelProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, ChannelBulkhead> bulkheads = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (NotificationChannel channel : channels) {
+            String type = channel.getType().toUpperCase();
+            bulkheads.put(type, new ChannelBulkhead(channel, properties.getSettings(type), meterRegistry));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(ChannelBulkhead::shutdown);
+    }
+
+    /**
+     * 通过对应渠道发送单个通知，渠道并发已满时抛出 ChannelRejectedException
+     */
+    public boolean send(String type, String recipient, String title, String content) {
+        return resolve(type).send(recipient, title, content);
+    }
+
+    /**
+     * 通过对应渠道批量发送，recipients 数量不应超过 getMaxBatchSize；渠道并发已满时抛出 ChannelRejectedException
+     */
+    public List<Boolean> sendBatch(String type, List<String> recipients, String title, String content) {
+        return resolve(type).sendBatch(recipients, title, content);
+    }
+
+    public boolean supportsBatch(String type) {
+        return resolve(type).supportsBatch();
+    }
+
+    public int getMaxBatchSize(String type) {
+        return resolve(type).getMaxBatchSize();
+    }
+
+    public int getMaxConcurrent(String type) {
+        return resolve(type).getMaxConcurrent();
+    }
+
+    /**
+     * 解析通知类型对应的渠道类型（用于指标标签，避免任意输入导致标签膨胀）
+     */
+    public String resolveType(String type) {
+        if (type != null && bulkheads.containsKey(type.toUpperCase())) {
+            return type.toUpperCase();
+        }
+        return properties.getDefaultChannel().toUpperCase();
+    }
+
+    /**
+     * 获取各渠道统计信息
+     */
+    public Map<String, Object> getChannelStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        bulkheads.forEach((type, bulkhead) -> statistics.put(type, bulkhead.getStatistics()));
+        return statistics;
+    }
+
+    /**
+     * 根据通知类型查找渠道隔离舱
+     */
+    private ChannelBulkhead resolve(String type) {
+        ChannelBulkhead bulkhead = type != null ? bulkheads.get(type.toUpperCase()) : null;
+        if (bulkhead == null) {
+            bulkhead = bulkheads.get(properties.getDefaultChannel().toUpperCase());
+        }
+        if (bulkhead == null) {
+            throw new RuntimeException("不支持的通知类型: " + type);
+        }
+        return bulkhead;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.notification.channel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 进程内模拟渠道
+ * 按配置的延迟区间和失败率模拟发送，用于离线压测
+ */
+public class StubNotificationChannel implements NotificationChannel {
+
+    private final String type;
+    private final ChannelSettings settings;
+
+    public StubNotificationChannel(String type, ChannelSettings settings) {
+        this.type = type;
+        this.settings = settings;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public boolean send(String recipient, String title, String content) {
+        simulateLatency();
+        return ThreadLocalRandom.current().nextDouble() >= settings.getFailureRate();
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return settings.isBatchEnabled();
+    }
+
+    /**
+     * 批量发送只模拟一次网络往返，每个接收者独立计算失败率
+     */
+    @Override
+    public List<Boolean> sendBatch(List<String> recipients, String title, String content) {
+        simulateLatency();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Boolean> results = new ArrayList<>(recipients.size());
+        for (int i = 0; i < recipients.size(); i++) {
+            results.add(random.nextDouble() >= settings.getFailureRate());
+        }
+        return results;
+    }
+
+    /**
+     * 模拟网络延迟
+     */
+    private void simulateLatency() {
+        long min = settings.getMinLatencyMs();
+        long max = Math.max(min, settings.getMaxLatencyMs());
+        try {
+            Thread.sleep(min + ThreadLocalRandom.current().nextLong(max - min + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,15 +1,35 @@
 package com.example.notification.controller;
 
+import com.example.notification.channel.ChannelRejectedException;
+import com.example.notification.dedup.IdempotencyService;
+import com.example.notification.dispatch.NotificationDispatcher;
+import com.example.notification.dispatch.NotificationTask;
 import com.example.notification.dto.NotificationRequest;
+import com.example.notification.history.HistoryPage;
+import com.example.notification.history.NotificationRecord;
+import com.example.notification.retry.DeadLetter;
+import com.example.notification.retry.RetryScheduler;
 import com.example.notification.service.NotificationService;
+import com.example.notification.template.NotificationTemplate;
+import com.example.notification.template.TemplateRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * 通知控制器
@@ -22,6 +42,27 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private RetryScheduler retryScheduler;
+    
+    @Autowired
+    private TemplateRegistry templateRegistry;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${notification.dispatch.async-enabled:true}")
+    private boolean asyncDispatchEnabled;
+    
+    @Value("${notification.history.max-page-size:500}")
+    private int maxHistoryPageSize;
+    
     @Value("${app.name:通知服务}")
     private String appName;
     
@@ -43,17 +84,38 @@ public class NotificationController {
     
     /**
      * 发送通知
+     * 异步模式下入队后立即返回 202 和通知ID，队列已满时返回 503。
+     * 携带幂等键的重复请求直接返回首次请求的结果
      */
     @PostMapping("/send")
     public ResponseEntity<Map<String, Object>> sendNotification(@RequestBody NotificationRequest request) {
-        boolean success = notificationService.sendNotification(
-                request.getRecipient(),
-                request.getType(),
-                request.getTitle(),
-                request.getContent()
-        );
-        
+        return idempotent("send", request.getIdempotencyKey(), () -> asyncDispatchEnabled
+                ? dispatchNotification(request)
+                : sendNotificationNow(request));
+    }
+    
+    /**
+     * 同步发送通知，渠道并发已满时返回 503
+     */
+    private ResponseEntity<Map<String, Object>> sendNotificationNow(NotificationRequest request) {
         Map<String, Object> response = new HashMap<>();
+        boolean success;
+        try {
+            success = notificationService.sendNotification(
+                    request.getRecipient(),
+                    request.getType(),
+                    request.getTitle(),
+                    request.getContent()
+            );
+        } catch (ChannelRejectedException e) {
+            response.put("success", false);
+            response.put("message", "通知渠道繁忙，请稍后重试");
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response);
+        }
+        
         response.put("success", success);
         response.put("message", success ? "通知发送成功" : "通知发送失败");
         response.put("timestamp", System.currentTimeMillis());
@@ -61,51 +123,279 @@ public class NotificationController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * 查询异步通知的发送状态
+     */
+    @GetMapping("/status/{notificationId}")
+    public ResponseEntity<Map<String, Object>> getNotificationStatus(@PathVariable String notificationId) {
+        return notificationDispatcher.getTask(notificationId)
+                .map(task -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("notificationId", task.getId());
+                    response.put("recipient", task.getRecipient());
+                    response.put("type", task.getType());
+                    response.put("status", task.getStatus());
+                    response.put("enqueuedAt", task.getEnqueuedAt());
+                    if (task.isCompleted()) {
+                        response.put("completedAt", task.getCompletedAt());
+                    }
+                    return ResponseEntity.ok(response);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     /**
      * 批量发送通知
      */
     @PostMapping("/send/batch")
     public ResponseEntity<Map<String, Object>> sendBatchNotifications(@RequestBody BatchNotificationRequest request) {
-        int successCount = notificationService.sendBatchNotifications(
-                request.getRecipients(),
-                request.getType(),
-                request.getTitle(),
-                request.getContent()
-        );
+        return idempotent("batch", request.getIdempotencyKey(), () -> sendBatchNow(request));
+    }
+    
+    /**
+     * 执行批量发送
+     */
+    private ResponseEntity<Map<String, Object>> sendBatchNow(BatchNotificationRequest request) {
+        if (request.getTemplateId() != null || request.getVariables() != null) {
+            return sendTemplatedBatchNow(request);
+        }
+        NotificationService.BatchResult result = request.getMaxConcurrency() != null
+                ? notificationService.sendBatchNotifications(
+                        request.getRecipients(),
+                        request.getType(),
+                        request.getTitle(),
+                        request.getContent(),
+                        request.getMaxConcurrency())
+                : notificationService.sendBatchNotifications(
+                        request.getRecipients(),
+                        request.getType(),
+                        request.getTitle(),
+                        request.getContent());
         
         Map<String, Object> response = new HashMap<>();
-        response.put("totalRecipients", request.getRecipients().size());
-        response.put("successCount", successCount);
-        response.put("failureCount", request.getRecipients().size() - successCount);
-        response.put("timestamp", System.currentTimeMillis());
+        putBatchResult(response, request.getRecipients().size(), result);
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 使用模板执行个性化批量发送：指定 templateId 时使用已注册模板，
+     * 否则 title/content 作为内联模板（模板只保存在各实例内存中，内联模板不依赖请求落到哪个实例）
+     */
+    private ResponseEntity<Map<String, Object>> sendTemplatedBatchNow(BatchNotificationRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        Optional<NotificationTemplate> template;
+        try {
+            template = request.getTemplateId() != null
+                    ? templateRegistry.getTemplate(request.getTemplateId())
+                    : Optional.of(templateRegistry.compileInline(request.getTitle(), request.getContent()));
+        } catch (RuntimeException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (template.isEmpty()) {
+            response.put("error", "模板不存在: " + request.getTemplateId());
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        NotificationService.BatchResult result = notificationService.sendTemplatedBatchNotifications(
+                request.getRecipients(),
+                request.getType(),
+                template.get(),
+                request.getVariables(),
+                request.getMaxConcurrency() != null ? request.getMaxConcurrency() : Integer.MAX_VALUE);
         
+        if (request.getTemplateId() != null) {
+            response.put("templateId", request.getTemplateId());
+        }
+        putBatchResult(response, request.getRecipients().size(), result);
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * 批量发送结果：被渠道拒绝的接收者未发送，不计入失败，可由客户端稍后重新提交
+     */
+    private void putBatchResult(Map<String, Object> response, int totalRecipients,
+                                NotificationService.BatchResult result) {
+        int rejectedCount = result.rejectedRecipients().size();
+        response.put("totalRecipients", totalRecipients);
+        response.put("successCount", result.successCount());
+        response.put("failureCount", totalRecipients - result.successCount() - rejectedCount);
+        response.put("rejectedCount", rejectedCount);
+        if (rejectedCount > 0) {
+            response.put("rejectedRecipients", result.rejectedRecipients());
+        }
+        response.put("timestamp", System.currentTimeMillis());
+    }
+    
+    /**
+     * 注册通知模板，标题和内容支持 {{变量名}} 占位符
+     */
+    @PostMapping("/templates")
+    public ResponseEntity<?> registerTemplate(@RequestBody TemplateRequest request) {
+        try {
+            NotificationTemplate template = templateRegistry.register(
+                    request.getTemplateId(), request.getTitle(), request.getContent());
+            return ResponseEntity.status(HttpStatus.CREATED).body(template);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    /**
+     * 查询通知模板
+     */
+    @GetMapping("/templates/{templateId}")
+    public ResponseEntity<NotificationTemplate> getTemplate(@PathVariable String templateId) {
+        return templateRegistry.getTemplate(templateId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * 删除通知模板
+     */
+    @DeleteMapping("/templates/{templateId}")
+    public ResponseEntity<Void> deleteTemplate(@PathVariable String templateId) {
+        return templateRegistry.remove(templateId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+    
     /**
      * 获取通知历史
      */
     @GetMapping("/history/{recipient}")
-    public ResponseEntity<List<Map<String, Object>>> getNotificationHistory(@PathVariable String recipient) {
-        List<Map<String, Object>> history = notificationService.getNotificationHistory(recipient);
+    public ResponseEntity<List<NotificationRecord>> getNotificationHistory(@PathVariable String recipient) {
+        List<NotificationRecord> history = notificationService.getNotificationHistory(recipient);
         return ResponseEntity.ok(history);
     }
     
+    /**
+     * 分页获取通知历史
+     * cursor 为起始序号（含），响应中的 nextCursor 用于获取下一页
+     */
+    @GetMapping("/history/{recipient}/page")
+    public ResponseEntity<HistoryPage> getNotificationHistoryPage(@PathVariable String recipient,
+                                                                  @RequestParam(defaultValue = "0") long cursor,
+                                                                  @RequestParam(defaultValue = "50") int limit,
+                                                                  @RequestParam(required = false) String type,
+                                                                  @RequestParam(required = false) Boolean success) {
+        int pageSize = Math.max(1, Math.min(limit, maxHistoryPageSize));
+        HistoryPage page = notificationService.getNotificationHistoryPage(recipient, cursor, pageSize, type, success);
+        return ResponseEntity.ok(page);
+    }
+    
+    /**
+     * 以 NDJSON 流式输出通知历史，逐条读取逐条写出，不在内存中构建完整列表
+     */
+    @GetMapping(value = "/history/{recipient}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamNotificationHistory(@PathVariable String recipient,
+                                                                           @RequestParam(defaultValue = "0") long cursor,
+                                                                           @RequestParam(required = false) String type,
+                                                                           @RequestParam(required = false) Boolean success) {
+        ObjectWriter writer = objectMapper.writerFor(NotificationRecord.class);
+        StreamingResponseBody body = out -> {
+            try {
+                notificationService.streamNotificationHistory(recipient, cursor, type, success, record -> {
+                    try {
+                        out.write(writer.writeValueAsBytes(record));
+                        out.write('\n');
+                        return true;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    /**
+     * 查询死信：重试用尽仍失败的通知（从新到旧）
+     */
+    @GetMapping("/dead-letters")
+    public ResponseEntity<List<DeadLetter>> getDeadLetters(@RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(retryScheduler.getDeadLetters(Math.max(1, Math.min(limit, maxHistoryPageSize))));
+    }
+    
     /**
      * 获取通知统计
      */
     @GetMapping("/statistics")
     public ResponseEntity<Map<String, Object>> getNotificationStatistics() {
         Map<String, Object> statistics = notificationService.getNotificationStatistics();
+        statistics.put("dispatch", notificationDispatcher.getDispatchStatistics());
+        statistics.put("idempotency", idempotencyService.getStatistics());
+        statistics.put("retry", retryScheduler.getRetryStatistics());
         return ResponseEntity.ok(statistics);
     }
     
+    /**
+     * 按幂等键执行请求，仅缓存成功且至少发出一条通知的响应（全部被渠道拒绝时什么都没发送，允许用同一键重试）；
+     * 重复请求的响应带 Idempotent-Replayed 头
+     */
+    private ResponseEntity<Map<String, Object>> idempotent(String scope, String idempotencyKey,
+                                                           Supplier<ResponseEntity<Map<String, Object>>> action) {
+        String key = idempotencyKey != null && !idempotencyKey.isBlank() ? scope + ":" + idempotencyKey : null;
+        IdempotencyService.Result<ResponseEntity<Map<String, Object>>> result = idempotencyService.execute(
+                key, action, response -> response.getStatusCode().is2xxSuccessful() && !allRejected(response));
+        if (!result.duplicate()) {
+            return result.value();
+        }
+        return ResponseEntity.status(result.value().getStatusCode())
+                .header("Idempotent-Replayed", "true")
+                .body(result.value().getBody());
+    }
+    
+    private static boolean allRejected(ResponseEntity<Map<String, Object>> response) {
+        Map<String, Object> body = response.getBody();
+        return body != null && body.get("rejectedCount") instanceof Integer rejected && rejected > 0
+                && rejected.equals(body.get("totalRecipients"));
+    }
+    
+    /**
+     * 将通知放入异步发送队列
+     */
+    private ResponseEntity<Map<String, Object>> dispatchNotification(NotificationRequest request) {
+        Optional<NotificationTask> task = notificationDispatcher.dispatch(
+                request.getRecipient(),
+                request.getType(),
+                request.getTitle(),
+                request.getContent()
+        );
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", System.currentTimeMillis());
+        if (task.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "通知队列已满，请稍后重试");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response);
+        }
+        
+        response.put("success", true);
+        response.put("notificationId", task.get().getId());
+        response.put("status", task.get().getStatus());
+        response.put("message", "通知已加入发送队列");
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+    
     // 内部类定义请求对象
     public static class BatchNotificationRequest {
         private List<String> recipients;
         private String type;
         private String title;
         private String content;
+        private Integer maxConcurrency;  // 可选，批次内最大并发数（不超过服务端上限）
+        private String idempotencyKey;   // 可选，幂等键
+        private String templateId;       // 可选，使用已注册模板代替 title/content
+        private Map<String, Map<String, String>> variables;  // 可选，接收者 -> 模板变量；未指定 templateId 时 title/content 作为内联模板
         
         // Getters and Setters
         public List<String> getRecipients() { return recipients; }
@@ -119,5 +409,33 @@ public class NotificationController {
         
         public String getContent() { return content; }
         public void setContent(String content) { this.content = content; }
+        
+        public Integer getMaxConcurrency() { return maxConcurrency; }
+        public void setMaxConcurrency(Integer maxConcurrency) { this.maxConcurrency = maxConcurrency; }
+        
+        public String getIdempotencyKey() { return idempotencyKey; }
+        public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+        
+        public String getTemplateId() { return templateId; }
+        public void setTemplateId(String templateId) { this.templateId = templateId; }
+        
+        public Map<String, Map<String, String>> getVariables() { return variables; }
+        public void setVariables(Map<String, Map<String, String>> variables) { this.variables = variables; }
+    }
+    
+    public static class TemplateRequest {
+        private String templateId;
+        private String title;
+        private String content;
+        
+        // Getters and Setters
+        public String getTemplateId() { return templateId; }
+        public void setTemplateId(String templateId) { this.templateId = templateId; }
+        
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+        
+        public String getContent() { return content; }
+        public void setContent(String content) { this.content = content; }
     }
 }
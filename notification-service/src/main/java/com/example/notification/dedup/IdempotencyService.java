@@ -0,0 +1,158 @@
+package com.example.notification.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 幂等键去重服务
+ * 每个键以一次 putIfAbsent 登记到精确的 TTL 缓存：已存在则返回首次执行的结果而不重复发送。
+ * 首次出现的键本身必须写入缓存才能拦截之后（包括并发）的重复请求，前置布隆过滤器省不掉这次写入，因此不使用。
+ * 缓存条目数有上限，超出时淘汰最早写入的条目
+ */
+@Component
+public class IdempotencyService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.idempotency.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${notification.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    private final Map<String, Entry<?>> entries = new ConcurrentHashMap<>();
+    // TTL 固定，写入顺序即过期顺序
+    private final Queue<Entry<?>> expiryQueue = new ConcurrentLinkedQueue<>();
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        hitCounter = Counter.builder("notification.idempotency.requests")
+                .tag("result", "duplicate")
+                .description("幂等键请求数")
+                .register(meterRegistry);
+        missCounter = Counter.builder("notification.idempotency.requests")
+                .tag("result", "first")
+                .description("幂等键请求数")
+                .register(meterRegistry);
+        Gauge.builder("notification.idempotency.entries", entries, Map::size)
+                .description("幂等结果缓存条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 按幂等键执行操作
+     * 首次出现的键执行 action 并缓存结果（仅当 cacheable 判定可缓存时）；
+     * 重复的键等待并返回首次执行的结果。key 为空时直接执行
+     */
+    public <T> Result<T> execute(String key, Supplier<T> action, Predicate<T> cacheable) {
+        if (key == null || key.isBlank()) {
+            return new Result<>(action.get(), false);
+        }
+
+        evictExpired();
+        Entry<T> entry = new Entry<>(key, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds));
+        // 只有本线程的条目成功登记后才执行；过期条目被其他请求抢先替换时重新读取并等待胜者的结果
+        while (true) {
+            @SuppressWarnings("unchecked")
+            Entry<T> existing = (Entry<T>) entries.putIfAbsent(key, entry);
+            if (existing == null) {
+                break;
+            }
+            if (!existing.isExpired()) {
+                // 重复请求：等待首个请求的结果（首个请求仍在执行时阻塞到其完成）
+                hitCounter.increment();
+                return new Result<>(existing.result.join(), true);
+            }
+            if (entries.replace(key, existing, entry)) {
+                break;
+            }
+        }
+        missCounter.increment();
+
+        T value;
+        try {
+            value = action.get();
+        } catch (RuntimeException e) {
+            entries.remove(key, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+        entry.result.complete(value);
+        if (cacheable.test(value)) {
+            expiryQueue.add(entry);
+        } else {
+            // 不可缓存的结果（如队列已满）允许客户端用同一键重试
+            entries.remove(key, entry);
+        }
+        return new Result<>(value, false);
+    }
+
+    /**
+     * 获取去重统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        long hits = (long) hitCounter.count();
+        long misses = (long) missCounter.count();
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("duplicates", hits);
+        statistics.put("firstSeen", misses);
+        statistics.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses) * 100);
+        statistics.put("entries", entries.size());
+        statistics.put("maxEntries", maxEntries);
+        return statistics;
+    }
+
+    /**
+     * 淘汰过期条目，条目数超出上限时淘汰最早写入的条目
+     */
+    private void evictExpired() {
+        Entry<?> head;
+        while ((head = expiryQueue.peek()) != null
+                && (head.isExpired() || entries.size() > maxEntries)) {
+            if (expiryQueue.remove(head)) {
+                entries.remove(head.key, head);
+            }
+        }
+    }
+
+    /**
+     * 执行结果
+     */
+    public record Result<T>(T value, boolean duplicate) {
+    }
+
+    private static final class Entry<T> {
+        private final String key;
+        private final long expiresAt;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Entry(String key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+
+        // 仍在执行的条目不视为过期，否则执行超过 TTL 时重复请求会再次执行
+        private boolean isExpired() {
+            return result.isDone() && System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.notification.dispatch;
+
+import com.example.notification.channel.ChannelRejectedException;
+import com.example.notification.service.NotificationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步通知分发器
+ * 将通知放入有界队列，由固定大小的工作线程池异步发送，避免阻塞请求线程
+ */
+@Component
+public class NotificationDispatcher {
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.dispatch.worker-threads:16}")
+    private int workerThreads;
+
+    @Value("${notification.dispatch.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${notification.dispatch.status-retention:100000}")
+    private int statusRetention;
+
+    // 任务状态表（仅保留最近 statusRetention 条）
+    private final Map<String, NotificationTask> tasks = new ConcurrentHashMap<>();
+    private final Queue<String> completedTaskIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger completedTaskCount = new AtomicInteger();
+
+    private ThreadPoolExecutor executor;
+    private Timer queueWaitTimer;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                workerThreads, workerThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "notification-worker-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("notification.dispatch.queue.depth", executor, e -> e.getQueue().size())
+                .description("等待发送的通知数量")
+                .register(meterRegistry);
+        Gauge.builder("notification.dispatch.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("正在发送的通知数量")
+                .register(meterRegistry);
+        queueWaitTimer = Timer.builder("notification.dispatch.wait")
+                .description("通知在队列中的等待时间")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("notification.dispatch.rejected")
+                .description("因队列已满被拒绝的通知数量")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 提交通知到发送队列
+     * 队列已满时返回空，由调用方进行背压处理
+     */
+    public Optional<NotificationTask> dispatch(String recipient, String type, String title, String content) {
+        NotificationTask task = new NotificationTask(UUID.randomUUID().toString(), recipient, type, title, content);
+        tasks.put(task.getId(), task);
+        try {
+            executor.execute(() -> process(task));
+            return Optional.of(task);
+        } catch (RejectedExecutionException e) {
+            tasks.remove(task.getId());
+            rejectedCounter.increment();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 查询通知任务状态
+     */
+    public Optional<NotificationTask> getTask(String notificationId) {
+        return Optional.ofNullable(tasks.get(notificationId));
+    }
+
+    /**
+     * 获取分发队列统计信息
+     */
+    public Map<String, Object> getDispatchStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("queueDepth", executor.getQueue().size());
+        statistics.put("queueCapacity", queueCapacity);
+        statistics.put("activeWorkers", executor.getActiveCount());
+        statistics.put("workerThreads", workerThreads);
+        statistics.put("rejected", (long) rejectedCounter.count());
+        statistics.put("averageWaitMillis", queueWaitTimer.mean(TimeUnit.MILLISECONDS));
+        return statistics;
+    }
+
+    /**
+     * 工作线程执行发送
+     */
+    private void process(NotificationTask task) {
+        queueWaitTimer.record(System.nanoTime() - task.getEnqueuedNanos(), TimeUnit.NANOSECONDS);
+        task.setStatus(NotificationStatus.SENDING);
+        try {
+            notificationService.sendNotification(
+                    task.getRecipient(), task.getType(), task.getTitle(), task.getContent(),
+                    success -> {
+                        task.complete(success);
+                        retain(task.getId());
+                    });
+        } catch (ChannelRejectedException e) {
+            // 渠道并发已满：与队列已满一样属于背压，不计为发送失败
+            task.reject();
+            retain(task.getId());
+            return;
+        }
+        // 首次发送失败且已调度重试时，最终结果稍后由回调写入
+        task.markRetrying();
+    }
+
+    /**
+     * 限制已完成任务的状态保留数量，淘汰最早完成的任务
+     */
+    private void retain(String taskId) {
+        completedTaskIds.add(taskId);
+        if (completedTaskCount.incrementAndGet() > statusRetention) {
+            String evicted = completedTaskIds.poll();
+            if (evicted != null) {
+                tasks.remove(evicted);
+                completedTaskCount.decrementAndGet();
+            }
+        }
+    }
+}
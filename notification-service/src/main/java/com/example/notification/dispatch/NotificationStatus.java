@@ -0,0 +1,13 @@
+package com.example.notification.dispatch;
+
+/**
+ * 通知分发状态枚举
+ */
+public enum NotificationStatus {
+    QUEUED,   // 已入队，等待发送
+    SENDING,  // 发送中
+    RETRYING, // 首次发送失败，等待重试
+    SENT,     // 发送成功
+    FAILED,   // 发送失败
+    REJECTED  // 渠道并发已满，未发送
+}
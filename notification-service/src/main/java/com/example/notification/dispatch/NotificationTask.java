@@ -0,0 +1,73 @@
+package com.example.notification.dispatch;
+
+/**
+ * 异步通知任务
+ * 记录一次入队发送的请求内容与当前状态
+ */
+public class NotificationTask {
+    private final String id;
+    private final String recipient;
+    private final String type;
+    private final String title;
+    private final String content;
+    private final long enqueuedAt;       // 入队时间（毫秒）
+    private final long enqueuedNanos;    // 入队时间（纳秒，用于计算排队耗时）
+
+    private volatile NotificationStatus status = NotificationStatus.QUEUED;
+    private volatile long completedAt;
+
+    public NotificationTask(String id, String recipient, String type, String title, String content) {
+        this.id = id;
+        this.recipient = recipient;
+        this.type = type;
+        this.title = title;
+        this.content = content;
+        this.enqueuedAt = System.currentTimeMillis();
+        this.enqueuedNanos = System.nanoTime();
+    }
+
+    // Getters
+    public String getId() { return id; }
+    public String getRecipient() { return recipient; }
+    public String getType() { return type; }
+    public String getTitle() { return title; }
+    public String getContent() { return content; }
+    public long getEnqueuedAt() { return enqueuedAt; }
+    public long getEnqueuedNanos() { return enqueuedNanos; }
+
+    public NotificationStatus getStatus() { return status; }
+    public void setStatus(NotificationStatus status) { this.status = status; }
+
+    public long getCompletedAt() { return completedAt; }
+    public void setCompletedAt(long completedAt) { this.completedAt = completedAt; }
+
+    /**
+     * 仍处于发送中时标记为等待重试（重试可能已先行完成）
+     */
+    public synchronized void markRetrying() {
+        if (status == NotificationStatus.SENDING) {
+            status = NotificationStatus.RETRYING;
+        }
+    }
+
+    /**
+     * 标记最终发送结果
+     */
+    public synchronized void complete(boolean success) {
+        completedAt = System.currentTimeMillis();
+        status = success ? NotificationStatus.SENT : NotificationStatus.FAILED;
+    }
+
+    /**
+     * 标记为被渠道隔离舱拒绝（未发送）
+     */
+    public synchronized void reject() {
+        completedAt = System.currentTimeMillis();
+        status = NotificationStatus.REJECTED;
+    }
+
+    public boolean isCompleted() {
+        return status == NotificationStatus.SENT || status == NotificationStatus.FAILED
+                || status == NotificationStatus.REJECTED;
+    }
+}
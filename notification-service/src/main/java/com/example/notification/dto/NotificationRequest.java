@@ -8,6 +8,7 @@ public class NotificationRequest {
     private String type;       // 通知类型 (EMAIL, SMS, PUSH)
     private String title;      // 通知标题
     private String content;    // 通知内容
+    private String idempotencyKey;  // 幂等键（可选），重复请求返回首次结果
     
     // Constructors
     public NotificationRequest() {}
@@ -31,4 +32,7 @@ public class NotificationRequest {
     
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
+    
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
 }
@@ -0,0 +1,22 @@
+package com.example.notification.history;
+
+import java.util.List;
+
+/**
+ * 通知历史分页结果
+ * nextCursor 为下一页的起始序号，没有更多记录时为 null
+ */
+public class HistoryPage {
+    private final List<NotificationRecord> records;
+    private final Long nextCursor;
+
+    public HistoryPage(List<NotificationRecord> records, Long nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters
+    public List<NotificationRecord> getRecords() { return records; }
+    public Long getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return nextCursor != null; }
+}
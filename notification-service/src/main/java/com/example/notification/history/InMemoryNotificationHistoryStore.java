@@ -0,0 +1,107 @@
+package com.example.notification.history;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 内存通知历史存储（默认）
+ * 每个接收者一个固定容量的环形缓冲区；接收者总数有上限，超出时由 Caffeine 按近似 LRU（W-TinyLFU）淘汰，
+ * 查找和写入都不持全局锁
+ */
+@Component
+@ConditionalOnProperty(name = "notification.history.persistence.enabled", havingValue = "false", matchIfMissing = true)
+public class InMemoryNotificationHistoryStore implements NotificationHistoryStore {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.history.per-recipient-capacity:100}")
+    private int perRecipientCapacity;
+
+    @Value("${notification.history.max-recipients:10000}")
+    private int maxRecipients;
+
+    private Cache<String, RecipientHistory> histories;
+    private Counter evictionCounter;
+
+    @PostConstruct
+    public void init() {
+        // 淘汰维护在调用线程上执行，接收者数量不会明显超出上限
+        histories = Caffeine.newBuilder()
+                .maximumSize(maxRecipients)
+                .executor(Runnable::run)
+                .removalListener((String recipient, RecipientHistory history, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictionCounter.increment();
+                    }
+                })
+                .build();
+
+        evictionCounter = Counter.builder("notification.history.evictions")
+                .description("因超出接收者上限被淘汰的接收者数量")
+                .register(meterRegistry);
+        Gauge.builder("notification.history.recipients", this, InMemoryNotificationHistoryStore::getRecipientCount)
+                .description("保存历史的接收者数量")
+                .register(meterRegistry);
+        Gauge.builder("notification.history.records", this, InMemoryNotificationHistoryStore::getRecordCount)
+                .description("保存的历史记录总数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void record(String recipient, String type, String title, String content, boolean success) {
+        histories.get(recipient, k -> new RecipientHistory(perRecipientCapacity))
+                .append(type, title, content, success, System.currentTimeMillis());
+    }
+
+    @Override
+    public void scan(String recipient, long fromSequence, Predicate<NotificationRecord> visitor) {
+        RecipientHistory history = histories.getIfPresent(recipient);
+        if (history != null) {
+            history.scan(fromSequence, visitor);
+        }
+    }
+
+    /**
+     * 当前保存历史的接收者数量
+     */
+    public int getRecipientCount() {
+        return (int) histories.estimatedSize();
+    }
+
+    /**
+     * 当前保存的历史记录总数，按现存接收者实时汇总，淘汰后不会漂移
+     */
+    public long getRecordCount() {
+        long records = 0;
+        for (RecipientHistory history : histories.asMap().values()) {
+            records += history.size();
+        }
+        return records;
+    }
+
+    @Override
+    public Map<String, Object> getHistoryStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("storage", "memory");
+        statistics.put("recipients", getRecipientCount());
+        statistics.put("maxRecipients", maxRecipients);
+        statistics.put("records", getRecordCount());
+        statistics.put("perRecipientCapacity", perRecipientCapacity);
+        statistics.put("evictions", (long) evictionCounter.count());
+        return statistics;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.notification.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 通知日志段文件
+ * 固定大小的内存映射文件，记录依次追加。记录格式：
+ * <pre>
+ * int    length      记录体长度（不含自身，含 CRC）
+ * long   sequence    接收者内序号
+ * long   timestamp   发送时间（毫秒）
+ * byte   success
+ * int+bytes          recipient / type / title / content（UTF-8，长度 -1 表示 null）
+ * int    crc32       记录体校验值
+ * </pre>
+ * 追加由调用方串行化，读取使用绝对位置访问，可与追加并发进行
+ */
+public class LogSegment {
+
+    private static final int LENGTH_BYTES = 4;
+    private static final int CRC_BYTES = 4;
+
+    private final int id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private volatile int writePosition;
+
+    private LogSegment(int id, Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * 打开（或创建）日志段并映射到内存
+     */
+    public static LogSegment open(Path directory, int id, int capacity) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        return new LogSegment(id, path, channel, buffer, capacity);
+    }
+
+    public static String fileName(int id) {
+        return String.format("segment-%010d.log", id);
+    }
+
+    /**
+     * 编码一条记录
+     */
+    public static byte[] encode(long sequence, String recipient, String type, String title, String content,
+                                boolean success, long timestamp) {
+        byte[] recipientBytes = bytes(recipient);
+        byte[] typeBytes = bytes(type);
+        byte[] titleBytes = bytes(title);
+        byte[] contentBytes = bytes(content);
+        int bodyLength = 8 + 8 + 1
+                + 4 + length(recipientBytes) + 4 + length(typeBytes) + 4 + length(titleBytes)
+                + 4 + length(contentBytes);
+
+        ByteBuffer record = ByteBuffer.allocate(LENGTH_BYTES + bodyLength + CRC_BYTES);
+        record.putInt(bodyLength + CRC_BYTES);
+        record.putLong(sequence);
+        record.putLong(timestamp);
+        record.put((byte) (success ? 1 : 0));
+        putString(record, recipientBytes);
+        putString(record, typeBytes);
+        putString(record, titleBytes);
+        putString(record, contentBytes);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), LENGTH_BYTES, bodyLength);
+        record.putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * 追加一条已编码的记录
+     *
+     * @return 记录在段内的偏移量，空间不足时返回 -1
+     */
+    public int append(byte[] record) {
+        int offset = writePosition;
+        if (offset + record.length > capacity) {
+            return -1;
+        }
+        buffer.put(offset, record);
+        writePosition = offset + record.length;
+        return offset;
+    }
+
+    /**
+     * 读取指定偏移量的记录（直接从映射页读取）
+     */
+    public LogEntry read(int offset) {
+        if (offset < 0 || offset + LENGTH_BYTES > writePosition) {
+            return null;
+        }
+        return decode(offset, writePosition);
+    }
+
+    /**
+     * 恢复：从头扫描有效记录，遇到空记录或校验失败即停止，并将写入位置定位到有效数据末尾
+     */
+    public void recover(RecordVisitor visitor) {
+        int offset = 0;
+        while (offset + LENGTH_BYTES <= capacity) {
+            LogEntry entry = decode(offset, capacity);
+            if (entry == null) {
+                break;
+            }
+            visitor.visit(offset, entry);
+            offset = entry.nextOffset();
+        }
+        writePosition = offset;
+    }
+
+    /**
+     * 将映射页刷到磁盘
+     */
+    public void flush() {
+        buffer.force();
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    public int getId() { return id; }
+    public int getWritePosition() { return writePosition; }
+    public int getCapacity() { return capacity; }
+
+    private LogEntry decode(int offset, int limit) {
+        int length = buffer.getInt(offset);
+        int bodyStart = offset + LENGTH_BYTES;
+        if (length <= CRC_BYTES || length > limit - bodyStart) {
+            return null;
+        }
+        int bodyLength = length - CRC_BYTES;
+        byte[] body = new byte[bodyLength];
+        buffer.get(bodyStart, body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != buffer.getInt(bodyStart + bodyLength)) {
+            return null;
+        }
+
+        ByteBuffer reader = ByteBuffer.wrap(body);
+        long sequence = reader.getLong();
+        long timestamp = reader.getLong();
+        boolean success = reader.get() == 1;
+        String recipient = getString(reader);
+        String type = getString(reader);
+        String title = getString(reader);
+        String content = getString(reader);
+        return new LogEntry(recipient,
+                new NotificationRecord(sequence, type, title, content, success, timestamp),
+                bodyStart + length);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static void putString(ByteBuffer record, byte[] value) {
+        if (value == null) {
+            record.putInt(-1);
+            return;
+        }
+        record.putInt(value.length);
+        record.put(value);
+    }
+
+    private static String getString(ByteBuffer reader) {
+        int length = reader.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(reader.array(), reader.position(), length, StandardCharsets.UTF_8);
+        reader.position(reader.position() + length);
+        return value;
+    }
+
+    /**
+     * 解码后的日志记录
+     */
+    public record LogEntry(String recipient, NotificationRecord record, int nextOffset) {
+    }
+
+    /**
+     * 恢复扫描回调
+     */
+    public interface RecordVisitor {
+        void visit(int offset, LogEntry entry);
+    }
+}
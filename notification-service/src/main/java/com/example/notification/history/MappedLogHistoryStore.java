@@ -0,0 +1,307 @@
+package com.example.notification.history;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * 基于内存映射日志的持久化通知历史存储
+ * 每次发送追加到分段的只追加日志文件；内存中只保留每个接收者最近记录的位置索引，
+ * 查询历史时直接从映射页解码。启动时扫描日志段重建索引，超出段数上限时删除最老的段。
+ * 被淘汰后再次出现的接收者从已分配过的最大序号之后继续编号，不会与日志中该接收者的旧记录序号重复
+ */
+@Component
+@ConditionalOnProperty(name = "notification.history.persistence.enabled", havingValue = "true")
+public class MappedLogHistoryStore implements NotificationHistoryStore {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.history.persistence.directory:./data/notification-log}")
+    private String directory;
+
+    @Value("${notification.history.persistence.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${notification.history.persistence.max-segments:16}")
+    private int maxSegments;
+
+    @Value("${notification.history.per-recipient-capacity:100}")
+    private int perRecipientCapacity;
+
+    @Value("${notification.history.max-recipients:10000}")
+    private int maxRecipients;
+
+    private final ConcurrentSkipListMap<Integer, LogSegment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private volatile LogSegment activeSegment;
+    private Map<String, RecipientIndex> indexes;
+    // 所有接收者已分配（含恢复）的最大序号
+    private final AtomicLong highestSequence = new AtomicLong(-1);
+
+    private Counter appendCounter;
+    private Counter evictionCounter;
+    private long recoveredRecords;
+
+    @PostConstruct
+    public void init() throws IOException {
+        indexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RecipientIndex> eldest) {
+                if (size() > maxRecipients) {
+                    evictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        appendCounter = Counter.builder("notification.history.log.appends")
+                .description("追加到历史日志的记录数")
+                .register(meterRegistry);
+        evictionCounter = Counter.builder("notification.history.evictions")
+                .description("因超出接收者上限被淘汰的接收者数量")
+                .register(meterRegistry);
+        Gauge.builder("notification.history.recipients", this, MappedLogHistoryStore::getRecipientCount)
+                .description("保存历史的接收者数量")
+                .register(meterRegistry);
+        Gauge.builder("notification.history.log.segments", segments, Map::size)
+                .description("历史日志段数量")
+                .register(meterRegistry);
+        Gauge.builder("notification.history.log.bytes", this, MappedLogHistoryStore::getUsedBytes)
+                .description("历史日志已使用字节数")
+                .register(meterRegistry);
+
+        recover();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        appendLock.lock();
+        try {
+            for (LogSegment segment : segments.values()) {
+                segment.flush();
+                segment.close();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void record(String recipient, String type, String title, String content, boolean success) {
+        RecipientIndex index = indexFor(recipient);
+        long sequence = index.claim();
+        highestSequence.accumulateAndGet(sequence, Math::max);
+        byte[] encoded = LogSegment.encode(sequence, recipient, type, title, content, success,
+                System.currentTimeMillis());
+
+        long position;
+        appendLock.lock();
+        try {
+            int offset = activeSegment.append(encoded);
+            if (offset < 0) {
+                roll();
+                offset = activeSegment.append(encoded);
+                if (offset < 0) {
+                    throw new IllegalArgumentException("通知记录超过日志段大小: " + encoded.length);
+                }
+            }
+            position = position(activeSegment.getId(), offset);
+        } finally {
+            appendLock.unlock();
+        }
+        index.put(sequence, position);
+        appendCounter.increment();
+    }
+
+    @Override
+    public void scan(String recipient, long fromSequence, Predicate<NotificationRecord> visitor) {
+        RecipientIndex index;
+        synchronized (indexes) {
+            index = indexes.get(recipient);
+        }
+        if (index == null) {
+            return;
+        }
+
+        long end = index.next.get();
+        long start = Math.max(fromSequence, Math.max(0, end - perRecipientCapacity));
+        for (long sequence = start; sequence < end; sequence++) {
+            long position = index.get(sequence);
+            LogSegment segment = position < 0 ? null : segments.get((int) (position >>> 32));
+            if (segment == null) {
+                continue;  // 尚未写完或所在日志段已被清理
+            }
+            LogSegment.LogEntry entry = segment.read((int) position);
+            // 槽位可能已被更新的记录覆盖，按序号和接收者校验
+            if (entry != null && entry.record().getSequence() == sequence && recipient.equals(entry.recipient())
+                    && !visitor.test(entry.record())) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getHistoryStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("storage", "mapped-log");
+        statistics.put("recipients", getRecipientCount());
+        statistics.put("maxRecipients", maxRecipients);
+        statistics.put("perRecipientCapacity", perRecipientCapacity);
+        statistics.put("evictions", (long) evictionCounter.count());
+        statistics.put("segments", segments.size());
+        statistics.put("maxSegments", maxSegments);
+        statistics.put("usedBytes", getUsedBytes());
+        statistics.put("appends", (long) appendCounter.count());
+        statistics.put("recoveredRecords", recoveredRecords);
+        return statistics;
+    }
+
+    public int getRecipientCount() {
+        synchronized (indexes) {
+            return indexes.size();
+        }
+    }
+
+    public long getUsedBytes() {
+        long bytes = 0;
+        for (LogSegment segment : segments.values()) {
+            bytes += segment.getWritePosition();
+        }
+        return bytes;
+    }
+
+    /**
+     * 启动恢复：按段号顺序扫描已有日志段并重建接收者索引
+     */
+    private void recover() throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.matches("segment-\\d{10}\\.log"))
+                    .forEach(name -> ids.add(Integer.parseInt(name.substring(8, 18))));
+        }
+        ids.sort(null);
+
+        int segmentSize = segmentSizeMb * 1024 * 1024;
+        for (int id : ids) {
+            LogSegment segment = LogSegment.open(dir, id, segmentSize);
+            segment.recover((offset, entry) -> {
+                long sequence = entry.record().getSequence();
+                highestSequence.accumulateAndGet(sequence, Math::max);
+                indexFor(entry.recipient()).restore(sequence, position(id, offset));
+                recoveredRecords++;
+            });
+            segments.put(id, segment);
+        }
+        if (segments.isEmpty()) {
+            segments.put(0, LogSegment.open(dir, 0, segmentSize));
+        }
+        activeSegment = segments.lastEntry().getValue();
+        enforceRetention();
+    }
+
+    /**
+     * 滚动到新的日志段（调用方需持有 appendLock）
+     */
+    private void roll() {
+        try {
+            activeSegment.flush();
+            int nextId = activeSegment.getId() + 1;
+            LogSegment segment = LogSegment.open(Paths.get(directory), nextId, segmentSizeMb * 1024 * 1024);
+            segments.put(nextId, segment);
+            activeSegment = segment;
+            enforceRetention();
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法创建通知日志段", e);
+        }
+    }
+
+    /**
+     * 删除超出保留数量的最老日志段
+     */
+    private void enforceRetention() throws IOException {
+        while (segments.size() > maxSegments) {
+            Map.Entry<Integer, LogSegment> oldest = segments.pollFirstEntry();
+            oldest.getValue().delete();
+        }
+    }
+
+    /**
+     * 获取接收者索引；新建的索引从已分配过的最大序号之后开始，
+     * 接收者可能曾被淘汰而旧记录仍在日志中，从 0 开始会与旧记录序号重复
+     */
+    private RecipientIndex indexFor(String recipient) {
+        synchronized (indexes) {
+            return indexes.computeIfAbsent(recipient,
+                    k -> new RecipientIndex(perRecipientCapacity, highestSequence.get() + 1));
+        }
+    }
+
+    /**
+     * 记录位置：高 32 位为段号，低 32 位为段内偏移
+     */
+    private static long position(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 单个接收者的记录位置环形索引
+     */
+    private static final class RecipientIndex {
+        private final int capacity;
+        private final AtomicLongArray positions;
+        private final AtomicLong next;
+
+        private RecipientIndex(int capacity, long firstSequence) {
+            this.capacity = capacity;
+            this.next = new AtomicLong(firstSequence);
+            this.positions = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                positions.set(i, -1L);
+            }
+        }
+
+        private long claim() {
+            return next.getAndIncrement();
+        }
+
+        private void put(long sequence, long position) {
+            positions.set((int) (sequence % capacity), position);
+        }
+
+        private void restore(long sequence, long position) {
+            put(sequence, position);
+            next.accumulateAndGet(sequence + 1, Math::max);
+        }
+
+        private long get(long sequence) {
+            return positions.get((int) (sequence % capacity));
+        }
+    }
+}
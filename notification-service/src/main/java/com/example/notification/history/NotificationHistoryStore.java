@@ -0,0 +1,38 @@
+package com.example.notification.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 通知历史存储
+ * 默认使用内存实现；开启 notification.history.persistence.enabled 后使用内存映射日志实现
+ */
+public interface NotificationHistoryStore {
+
+    /**
+     * 记录一条通知历史
+     */
+    void record(String recipient, String type, String title, String content, boolean success);
+
+    /**
+     * 获取接收者的通知历史（按时间从旧到新）
+     */
+    default List<NotificationRecord> getHistory(String recipient) {
+        List<NotificationRecord> records = new ArrayList<>();
+        scan(recipient, 0, records::add);
+        return records;
+    }
+
+    /**
+     * 从 fromSequence（含）开始按序号从旧到新逐条遍历接收者的历史，visitor 返回 false 时停止。
+     * 遍历过程不构建完整列表，可用于分页和流式输出
+     */
+    void scan(String recipient, long fromSequence, Predicate<NotificationRecord> visitor);
+
+    /**
+     * 获取历史存储统计信息
+     */
+    Map<String, Object> getHistoryStatistics();
+}
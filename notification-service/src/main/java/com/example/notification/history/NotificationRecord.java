@@ -0,0 +1,47 @@
+package com.example.notification.history;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 通知历史记录（不可变）
+ * 以紧凑字段代替 Map 存储，时间戳保存为毫秒值，序列化时再格式化
+ */
+public final class NotificationRecord {
+    private final long sequence;    // 接收者内的递增序号
+    private final String type;
+    private final String title;
+    private final String content;
+    private final boolean success;
+    private final long timestamp;   // 发送时间（毫秒）
+
+    public NotificationRecord(long sequence, String type, String title, String content,
+                              boolean success, long timestamp) {
+        this.sequence = sequence;
+        this.type = type;
+        this.title = title;
+        this.content = content;
+        this.success = success;
+        this.timestamp = timestamp;
+    }
+
+    // Getters
+    public long getSequence() { return sequence; }
+
+    public String getType() { return type; }
+    public String getTitle() { return title; }
+    public String getContent() { return content; }
+    public boolean isSuccess() { return success; }
+
+    @JsonIgnore
+    public long getTimestampMillis() { return timestamp; }
+
+    public String getTimestamp() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault())
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.notification.history;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * 单个接收者的通知历史环形缓冲区
+ * 写入通过 CAS 领取序号后再以 CAS 写槽位，无需加锁；容量满后覆盖最旧的记录。
+ * 槽位只会被更大的序号替换，迟到的写入不会覆盖已写入的更新记录
+ */
+public class RecipientHistory {
+
+    private final AtomicReferenceArray<NotificationRecord> slots;
+    private final int capacity;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    public RecipientHistory(int capacity) {
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @return 是否覆盖了旧记录
+     */
+    public boolean append(String type, String title, String content, boolean success, long timestamp) {
+        long sequence = nextSequence.getAndIncrement();
+        int index = (int) (sequence % capacity);
+        NotificationRecord record = new NotificationRecord(sequence, type, title, content, success, timestamp);
+        while (true) {
+            NotificationRecord current = slots.get(index);
+            if (current != null && current.getSequence() > sequence) {
+                // 同一槽位已写入更新的记录，本条视为已被覆盖
+                return true;
+            }
+            if (slots.compareAndSet(index, current, record)) {
+                return sequence >= capacity;
+            }
+        }
+    }
+
+    /**
+     * 从 fromSequence（含）开始按时间从旧到新遍历当前保留的记录，visitor 返回 false 时停止
+     * 并发写入时跳过尚未写完或已被覆盖的槽位
+     */
+    public void scan(long fromSequence, Predicate<NotificationRecord> visitor) {
+        long end = nextSequence.get();
+        long start = Math.max(fromSequence, Math.max(0, end - capacity));
+        for (long sequence = start; sequence < end; sequence++) {
+            NotificationRecord record = slots.get((int) (sequence % capacity));
+            if (record != null && record.getSequence() == sequence && !visitor.test(record)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 当前保留的记录数
+     */
+    public int size() {
+        return (int) Math.min(nextSequence.get(), capacity);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.notification.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 通知发送指标
+ * 总量计数使用 LongAdder 分段累加，延迟按类型和结果记录到 Micrometer Timer，
+ * 另维护最近 1/5/15 分钟的滑动窗口成功率
+ */
+@Component
+public class NotificationMetrics {
+
+    private static final int WINDOW_SECONDS = 15 * 60;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final LongAdder totalNotifications = new LongAdder();
+    private final LongAdder successfulNotifications = new LongAdder();
+    private final LongAdder failedNotifications = new LongAdder();
+    private final SlidingWindowCounter window = new SlidingWindowCounter(WINDOW_SECONDS);
+
+    // 按 类型 + 结果 缓存 Timer，避免每次发送都构建 Meter
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次发送结果及耗时
+     */
+    public void recordSend(String type, boolean success, long durationNanos) {
+        totalNotifications.increment();
+        if (success) {
+            successfulNotifications.increment();
+        } else {
+            failedNotifications.increment();
+        }
+        window.record(success);
+        timer(type, success ? "success" : "failure").record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录发送过程中出现的异常次数（发送结果另行通过 recordSend 记录）
+     */
+    public void recordError(String type, int count) {
+        errorCounters.computeIfAbsent(type, t -> Counter.builder("notification.send.errors")
+                        .tag("type", t)
+                        .description("通知发送异常次数")
+                        .register(meterRegistry))
+                .increment(count);
+    }
+
+    /**
+     * 获取统计信息：累计计数、全量与滑动窗口成功率、各类型的 p50/p99 延迟
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        long total = totalNotifications.sum();
+        long successful = successfulNotifications.sum();
+        statistics.put("totalNotifications", total);
+        statistics.put("successfulNotifications", successful);
+        statistics.put("failedNotifications", failedNotifications.sum());
+        statistics.put("successRate", total == 0 ? 0.0 : (double) successful / total * 100);
+
+        Map<String, Object> windows = new HashMap<>();
+        windows.put("1m", window.successRate(60));
+        windows.put("5m", window.successRate(5 * 60));
+        windows.put("15m", window.successRate(15 * 60));
+        statistics.put("successRateWindows", windows);
+
+        statistics.put("latency", getLatencyStatistics());
+        return statistics;
+    }
+
+    /**
+     * 各类型发送延迟（毫秒）
+     */
+    private Map<String, Object> getLatencyStatistics() {
+        Map<String, Map<String, Object>> latency = new HashMap<>();
+        timers.forEach((key, timer) -> {
+            String type = timer.getId().getTag("type");
+            String outcome = timer.getId().getTag("outcome");
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            Map<String, Object> values = new HashMap<>();
+            values.put("count", snapshot.count());
+            values.put("meanMillis", snapshot.mean(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                values.put("p" + Math.round(percentile.percentile() * 100) + "Millis",
+                        percentile.value(TimeUnit.MILLISECONDS));
+            }
+            latency.computeIfAbsent(type, t -> new HashMap<>()).put(outcome, values);
+        });
+        return new HashMap<>(latency);
+    }
+
+    private Timer timer(String type, String outcome) {
+        return timers.computeIfAbsent(type + ":" + outcome, key -> Timer.builder("notification.send")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .description("通知发送耗时")
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
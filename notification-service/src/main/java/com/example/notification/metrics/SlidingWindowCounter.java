@@ -0,0 +1,84 @@
+package com.example.notification.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 滑动窗口成功/失败计数器
+ * 按秒分桶的环形数组，桶过期后通过 CAS 整体替换，写入路径无锁
+ */
+public class SlidingWindowCounter {
+
+    private final int windowSeconds;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    public SlidingWindowCounter(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+        this.buckets = new AtomicReferenceArray<>(windowSeconds);
+    }
+
+    /**
+     * 记录一次发送结果
+     */
+    public void record(boolean success) {
+        Bucket bucket = currentBucket(System.currentTimeMillis() / 1000);
+        if (bucket == null) {
+            return;
+        }
+        if (success) {
+            bucket.success.increment();
+        } else {
+            bucket.failure.increment();
+        }
+    }
+
+    /**
+     * 计算最近 seconds 秒内的成功率（百分比），无数据时返回 0
+     */
+    public double successRate(int seconds) {
+        long now = System.currentTimeMillis() / 1000;
+        long oldest = now - Math.min(seconds, windowSeconds) + 1;
+        long success = 0;
+        long failure = 0;
+        for (int i = 0; i < windowSeconds; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.epochSecond >= oldest && bucket.epochSecond <= now) {
+                success += bucket.success.sum();
+                failure += bucket.failure.sum();
+            }
+        }
+        long total = success + failure;
+        return total == 0 ? 0.0 : (double) success / total * 100;
+    }
+
+    /**
+     * 获取指定秒的桶，只替换比它更旧的桶；
+     * 槽位已被更新的秒占用时说明该秒已滑出窗口（线程在取时间后被挂起），返回 null 丢弃这次记录
+     */
+    private Bucket currentBucket(long epochSecond) {
+        int index = (int) (epochSecond % windowSeconds);
+        while (true) {
+            Bucket bucket = buckets.get(index);
+            if (bucket != null && bucket.epochSecond == epochSecond) {
+                return bucket;
+            }
+            if (bucket != null && bucket.epochSecond > epochSecond) {
+                return null;
+            }
+            Bucket fresh = new Bucket(epochSecond);
+            if (buckets.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private final long epochSecond;
+        private final LongAdder success = new LongAdder();
+        private final LongAdder failure = new LongAdder();
+
+        private Bucket(long epochSecond) {
+            this.epochSecond = epochSecond;
+        }
+    }
+}
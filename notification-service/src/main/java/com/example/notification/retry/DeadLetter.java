@@ -0,0 +1,34 @@
+package com.example.notification.retry;
+
+/**
+ * 死信记录
+ * 重试次数用尽（或重试队列已满）仍未发送成功的通知
+ */
+public class DeadLetter {
+    private final String recipient;
+    private final String type;
+    private final String title;
+    private final String content;
+    private final int attempts;
+    private final String reason;
+    private final long failedAt;
+
+    public DeadLetter(String recipient, String type, String title, String content, int attempts, String reason) {
+        this.recipient = recipient;
+        this.type = type;
+        this.title = title;
+        this.content = content;
+        this.attempts = attempts;
+        this.reason = reason;
+        this.failedAt = System.currentTimeMillis();
+    }
+
+    // Getters
+    public String getRecipient() { return recipient; }
+    public String getType() { return type; }
+    public String getTitle() { return title; }
+    public String getContent() { return content; }
+    public int getAttempts() { return attempts; }
+    public String getReason() { return reason; }
+    public long getFailedAt() { return failedAt; }
+}
@@ -0,0 +1,139 @@
+package com.example.notification.retry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希时间轮
+ * 单个工作线程按固定刻度推进，所有延迟任务按到期刻度散列到环形槽位中，
+ * 调度一个任务只需入队一个小对象，适合同时挂起大量重试任务。
+ * 到期任务交给外部执行器运行，时间轮线程本身不执行业务逻辑
+ */
+public class HashedTimingWheel {
+
+    // 每个刻度最多从待入槽队列转移的任务数，避免单个刻度停留过久
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<Timeout>[] wheel;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Executor taskExecutor;
+    private final Thread workerThread;
+    private final long startTime;
+
+    private volatile boolean running = true;
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, Executor taskExecutor, String threadName) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.wheel = new List[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.taskExecutor = taskExecutor;
+        this.startTime = System.nanoTime();
+        this.workerThread = new Thread(this::run, threadName);
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    /**
+     * 在 delayMillis 毫秒后执行任务
+     */
+    public void schedule(Runnable task, long delayMillis) {
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        pendingCount.incrementAndGet();
+        pendingTimeouts.add(new Timeout(task, deadline));
+    }
+
+    /**
+     * 尚未到期的任务数
+     */
+    public int pendingCount() {
+        return pendingCount.get();
+    }
+
+    public void stop() {
+        running = false;
+        workerThread.interrupt();
+    }
+
+    private void run() {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            transferPendingTimeouts(tickNanos);
+            expireBucket(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    /**
+     * 将新调度的任务放入对应槽位，计算需要再转几圈才到期
+     */
+    private void transferPendingTimeouts(long tickNanos) {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            long ticks = Math.max(calculated, tick);  // 已过期的任务放入当前槽位
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * 执行当前槽位中已到期的任务，其余任务圈数减一
+     */
+    private void expireBucket(List<Timeout> bucket) {
+        if (bucket.isEmpty()) {
+            return;
+        }
+        List<Timeout> remaining = new ArrayList<>();
+        for (Timeout timeout : bucket) {
+            if (timeout.remainingRounds <= 0) {
+                pendingCount.decrementAndGet();
+                taskExecutor.execute(timeout.task);
+            } else {
+                timeout.remainingRounds--;
+                remaining.add(timeout);
+            }
+        }
+        bucket.clear();
+        bucket.addAll(remaining);
+    }
+
+    private static final class Timeout {
+        private final Runnable task;
+        private final long deadline;   // 相对时间轮启动的纳秒数
+        private long remainingRounds;  // 仅由时间轮线程访问
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.notification.retry;
+
+import com.example.notification.channel.NotificationChannelProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 失败通知重试调度器
+ * 指数退避 + 随机抖动，最大尝试次数按通知类型配置；重试任务挂在哈希时间轮上，
+ * 到期后在虚拟线程中执行。重试用尽的通知进入有界死信列表
+ */
+@Component
+public class RetryScheduler {
+
+    @Autowired
+    private NotificationChannelProperties channelProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.retry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.retry.base-delay-ms:1000}")
+    private long baseDelayMs;
+
+    @Value("${notification.retry.max-delay-ms:60000}")
+    private long maxDelayMs;
+
+    @Value("${notification.retry.tick-ms:100}")
+    private long tickMs;
+
+    @Value("${notification.retry.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${notification.retry.max-pending:500000}")
+    private int maxPending;
+
+    @Value("${notification.retry.dead-letter-capacity:10000}")
+    private int deadLetterCapacity;
+
+    private final ExecutorService retryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Deque<DeadLetter> deadLetters = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger deadLetterCount = new AtomicInteger();
+    private HashedTimingWheel timingWheel;
+
+    private Counter scheduledCounter;
+    private Counter exhaustedCounter;
+
+    @PostConstruct
+    public void init() {
+        timingWheel = new HashedTimingWheel(tickMs, wheelSize, retryExecutor, "notification-retry-wheel");
+
+        Gauge.builder("notification.retry.pending", timingWheel, HashedTimingWheel::pendingCount)
+                .description("等待重试的通知数量")
+                .register(meterRegistry);
+        Gauge.builder("notification.retry.dead.letters", deadLetterCount, AtomicInteger::get)
+                .description("死信列表中的通知数量")
+                .register(meterRegistry);
+        scheduledCounter = Counter.builder("notification.retry.scheduled")
+                .description("已调度的重试次数")
+                .register(meterRegistry);
+        exhaustedCounter = Counter.builder("notification.retry.exhausted")
+                .description("重试用尽进入死信的通知数量")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timingWheel.stop();
+        retryExecutor.shutdownNow();
+    }
+
+    /**
+     * 为失败的发送调度下一次尝试
+     *
+     * @param attempt 刚刚失败的是第几次尝试（从 1 开始）
+     * @param retry   下一次尝试要执行的动作
+     * @return 是否已调度重试；返回 false 表示这是最终结果（重试关闭、次数用尽或重试队列已满）
+     */
+    public boolean scheduleRetry(String recipient, String type, String title, String content,
+                                 int attempt, Runnable retry) {
+        if (!enabled) {
+            return false;
+        }
+        int maxAttempts = channelProperties.getSettings(type == null ? channelProperties.getDefaultChannel() : type)
+                .getMaxAttempts();
+        if (attempt >= maxAttempts) {
+            addDeadLetter(new DeadLetter(recipient, type, title, content, attempt, "重试次数已用尽"));
+            return false;
+        }
+        if (timingWheel.pendingCount() >= maxPending) {
+            addDeadLetter(new DeadLetter(recipient, type, title, content, attempt, "重试队列已满"));
+            return false;
+        }
+
+        timingWheel.schedule(retry, backoffDelay(attempt));
+        scheduledCounter.increment();
+        return true;
+    }
+
+    /**
+     * 获取最近的死信（从新到旧）
+     */
+    public List<DeadLetter> getDeadLetters(int limit) {
+        List<DeadLetter> result = new ArrayList<>(Math.min(limit, deadLetterCount.get()));
+        Iterator<DeadLetter> iterator = deadLetters.descendingIterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    /**
+     * 获取重试统计信息
+     */
+    public Map<String, Object> getRetryStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("pending", timingWheel.pendingCount());
+        statistics.put("scheduled", (long) scheduledCounter.count());
+        statistics.put("exhausted", (long) exhaustedCounter.count());
+        statistics.put("deadLetters", deadLetterCount.get());
+        return statistics;
+    }
+
+    /**
+     * 指数退避并加入随机抖动：延迟在 [d/2, d] 之间，d = min(maxDelay, baseDelay * 2^(attempt-1))
+     */
+    private long backoffDelay(int attempt) {
+        long delay = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private void addDeadLetter(DeadLetter deadLetter) {
+        exhaustedCounter.increment();
+        deadLetters.addLast(deadLetter);
+        if (deadLetterCount.incrementAndGet() > deadLetterCapacity && deadLetters.pollFirst() != null) {
+            deadLetterCount.decrementAndGet();
+        }
+    }
+}
@@ -1,12 +1,26 @@
 package com.example.notification.service;
 
+import com.example.notification.channel.ChannelRejectedException;
+import com.example.notification.channel.NotificationChannelRegistry;
+import com.example.notification.history.HistoryPage;
+import com.example.notification.history.NotificationHistoryStore;
+import com.example.notification.history.NotificationRecord;
+import com.example.notification.metrics.NotificationMetrics;
+import com.example.notification.retry.RetryScheduler;
+import com.example.notification.template.CompiledTemplate;
+import com.example.notification.template.NotificationTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * 通知业务服务类
@@ -14,119 +28,279 @@ import java.util.concurrent.atomic.AtomicLong;
 @Service
 public class NotificationService {
     
-    // 模拟通知历史存储（生产环境应使用数据库）
-    private final Map<String, List<Map<String, Object>>> notificationHistory = new ConcurrentHashMap<>();
+    // 通知历史存储（生产环境应使用数据库）
+    @Autowired
+    private NotificationHistoryStore historyStore;
     
-    // 统计计数器
-    private final AtomicLong totalNotifications = new AtomicLong(0);
-    private final AtomicLong successfulNotifications = new AtomicLong(0);
-    private final AtomicLong failedNotifications = new AtomicLong(0);
+    // 通知渠道（按类型路由）
+    @Autowired
+    private NotificationChannelRegistry channelRegistry;
+    
+    // 发送统计指标
+    @Autowired
+    private NotificationMetrics metrics;
+    
+    // 失败重试调度
+    @Autowired
+    private RetryScheduler retryScheduler;
+    
+    // 单个批次的最大并发发送数
+    @Value("${notification.batch.max-concurrency:200}")
+    private int batchMaxConcurrency;
     
     /**
      * 发送单个通知
      */
     public boolean sendNotification(String recipient, String type, String title, String content) {
-        try {
-            // 模拟通知发送逻辑
-            boolean success = simulateNotificationSending(recipient, type);
-            
-            // 记录通知历史
-            recordNotificationHistory(recipient, type, title, content, success);
-            
-            // 更新统计
-            totalNotifications.incrementAndGet();
-            if (success) {
-                successfulNotifications.incrementAndGet();
-            } else {
-                failedNotifications.incrementAndGet();
+        return sendNotification(recipient, type, title, content, null);
+    }
+    
+    /**
+     * 发送单个通知，返回首次发送结果
+     * 失败时按类型的重试策略自动重试，最终结果（成功或重试用尽）通过 onFinalOutcome 回调；
+     * 渠道并发已满时抛出 ChannelRejectedException，不记录结果也不重试
+     */
+    public boolean sendNotification(String recipient, String type, String title, String content,
+                                    Consumer<Boolean> onFinalOutcome) {
+        return attempt(recipient, type, title, content, 1, onFinalOutcome);
+    }
+    
+    /**
+     * 批量发送通知
+     */
+    public BatchResult sendBatchNotifications(List<String> recipients, String type, String title, String content) {
+        return sendBatchNotifications(recipients, type, title, content, batchMaxConcurrency);
+    }
+    
+    /**
+     * 批量发送通知（并发）
+     * 渠道支持批量发送时按批次大小分组，每组一次渠道调用；否则每个接收者单独发送。
+     * 每组/每个接收者在独立的虚拟线程中执行，通过信号量限制批次内的并发数。
+     * 被渠道隔离舱拒绝的接收者未发送，单独返回
+     */
+    public BatchResult sendBatchNotifications(List<String> recipients, String type, String title, String content,
+                                              int maxConcurrency) {
+        // 并发数同时受渠道隔离舱上限约束，避免批次线程在渠道许可上排队超时
+        int concurrency = Math.max(1, Math.min(Math.min(maxConcurrency, batchMaxConcurrency),
+                channelRegistry.getMaxConcurrent(type)));
+        Semaphore permits = new Semaphore(concurrency);
+        LongAdder successCount = new LongAdder();
+        Queue<String> rejected = new ConcurrentLinkedQueue<>();
+        boolean channelBatch = channelRegistry.supportsBatch(type);
+        int chunkSize = channelBatch ? channelRegistry.getMaxBatchSize(type) : 1;
+        
+        // 关闭执行器时会等待所有发送任务完成
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < recipients.size(); from += chunkSize) {
+                List<String> chunk = recipients.subList(from, Math.min(from + chunkSize, recipients.size()));
+                permits.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        successCount.add(channelBatch
+                                ? sendChunk(chunk, type, title, content)
+                                : sendNotification(chunk.get(0), type, title, content) ? 1 : 0);
+                    } catch (ChannelRejectedException e) {
+                        rejected.addAll(chunk);
+                    } finally {
+                        permits.release();
+                    }
+                });
             }
-            
-            return success;
-        } catch (Exception e) {
-            failedNotifications.incrementAndGet();
-            return false;
         }
+        
+        return new BatchResult(successCount.intValue(), new ArrayList<>(rejected));
     }
     
     /**
-     * 批量发送通知
+     * 使用预编译模板批量发送个性化通知
+     * 每个接收者的标题和内容在提交线程中用两个复用的 StringBuilder 渲染，再并发发送；
+     * 内容各不相同，因此不走渠道的批量接口
+     *
+     * @param variables 接收者 -> 模板变量
      */
-    public int sendBatchNotifications(List<String> recipients, String type, String title, String content) {
-        int successCount = 0;
+    public BatchResult sendTemplatedBatchNotifications(List<String> recipients, String type,
+                                                       NotificationTemplate template,
+                                                       Map<String, Map<String, String>> variables,
+                                                       int maxConcurrency) {
+        int concurrency = Math.max(1, Math.min(Math.min(maxConcurrency, batchMaxConcurrency),
+                channelRegistry.getMaxConcurrent(type)));
+        Semaphore permits = new Semaphore(concurrency);
+        LongAdder successCount = new LongAdder();
+        Queue<String> rejected = new ConcurrentLinkedQueue<>();
+        CompiledTemplate titleTemplate = template.getCompiledTitle();
+        CompiledTemplate contentTemplate = template.getCompiledContent();
+        StringBuilder titleBuilder = new StringBuilder(128);
+        StringBuilder contentBuilder = new StringBuilder(512);
+        Map<String, Map<String, String>> recipientVariables = variables != null ? variables : Map.of();
         
-        for (String recipient : recipients) {
-            if (sendNotification(recipient, type, title, content)) {
-                successCount++;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String recipient : recipients) {
+                Map<String, String> values = recipientVariables.get(recipient);
+                String title = titleTemplate.render(values, titleBuilder);
+                String content = contentTemplate.render(values, contentBuilder);
+                permits.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        if (sendNotification(recipient, type, title, content)) {
+                            successCount.increment();
+                        }
+                    } catch (ChannelRejectedException e) {
+                        rejected.add(recipient);
+                    } finally {
+                        permits.release();
+                    }
+                });
             }
         }
         
-        return successCount;
+        return new BatchResult(successCount.intValue(), new ArrayList<>(rejected));
     }
     
     /**
      * 获取通知历史
      */
-    public List<Map<String, Object>> getNotificationHistory(String recipient) {
-        return notificationHistory.getOrDefault(recipient, new ArrayList<>());
+    public List<NotificationRecord> getNotificationHistory(String recipient) {
+        return historyStore.getHistory(recipient);
+    }
+    
+    /**
+     * 分页获取通知历史
+     * 从序号 cursor（含）开始，按类型和发送结果过滤，最多返回 limit 条
+     */
+    public HistoryPage getNotificationHistoryPage(String recipient, long cursor, int limit,
+                                                  String type, Boolean success) {
+        Predicate<NotificationRecord> filter = historyFilter(type, success);
+        List<NotificationRecord> records = new ArrayList<>(limit);
+        Long[] nextCursor = {null};
+        historyStore.scan(recipient, cursor, record -> {
+            if (!filter.test(record)) {
+                return true;
+            }
+            if (records.size() == limit) {
+                nextCursor[0] = record.getSequence();
+                return false;
+            }
+            records.add(record);
+            return true;
+        });
+        return new HistoryPage(records, nextCursor[0]);
+    }
+    
+    /**
+     * 流式遍历通知历史，逐条交给 consumer，consumer 返回 false 时停止
+     */
+    public void streamNotificationHistory(String recipient, long cursor, String type, Boolean success,
+                                          Predicate<NotificationRecord> consumer) {
+        Predicate<NotificationRecord> filter = historyFilter(type, success);
+        historyStore.scan(recipient, cursor, record -> !filter.test(record) || consumer.test(record));
     }
     
     /**
      * 获取通知统计信息
      */
     public Map<String, Object> getNotificationStatistics() {
-        Map<String, Object> statistics = new HashMap<>();
-        statistics.put("totalNotifications", totalNotifications.get());
-        statistics.put("successfulNotifications", successfulNotifications.get());
-        statistics.put("failedNotifications", failedNotifications.get());
-        statistics.put("successRate", calculateSuccessRate());
+        Map<String, Object> statistics = metrics.getStatistics();
+        statistics.put("history", historyStore.getHistoryStatistics());
+        statistics.put("channels", channelRegistry.getChannelStatistics());
         statistics.put("timestamp", System.currentTimeMillis());
         
         return statistics;
     }
     
     /**
-     * 模拟通知发送
+     * 执行一次发送尝试
      */
-    private boolean simulateNotificationSending(String recipient, String type) {
-        // 模拟网络延迟
+    private boolean attempt(String recipient, String type, String title, String content, int attempt,
+                            Consumer<Boolean> onFinalOutcome) {
+        boolean success;
+        long start = System.nanoTime();
         try {
-            Thread.sleep(100 + (int)(Math.random() * 200));
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            // 通过对应类型的渠道发送
+            success = channelRegistry.send(type, recipient, title, content);
+        } catch (ChannelRejectedException e) {
+            if (attempt == 1) {
+                // 首次尝试被拒绝：交给调用方作为背压处理
+                throw e;
+            }
+            // 重试时渠道仍满载：按一次失败的尝试退避后再试，不计为发送异常
+            success = false;
+        } catch (Exception e) {
+            metrics.recordError(channelRegistry.resolveType(type), 1);
+            success = false;
         }
-        
-        // 模拟发送成功率（90%成功率）
-        return Math.random() > 0.1;
+        completeAttempt(recipient, type, title, content, success, System.nanoTime() - start,
+                attempt, onFinalOutcome);
+        return success;
     }
     
     /**
-     * 记录通知历史
+     * 处理一次尝试的结果：失败且可重试时调度下一次尝试，否则记录最终结果
      */
-    private void recordNotificationHistory(String recipient, String type, String title, String content, boolean success) {
-        Map<String, Object> record = new HashMap<>();
-        record.put("type", type);
-        record.put("title", title);
-        record.put("content", content);
-        record.put("success", success);
-        record.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        
-        notificationHistory.computeIfAbsent(recipient, k -> new ArrayList<>()).add(record);
-        
-        // 限制历史记录数量（最多保留100条）
-        List<Map<String, Object>> history = notificationHistory.get(recipient);
-        if (history.size() > 100) {
-            history.remove(0);
+    private void completeAttempt(String recipient, String type, String title, String content, boolean success,
+                                 long durationNanos, int attempt, Consumer<Boolean> onFinalOutcome) {
+        if (!success && retryScheduler.scheduleRetry(recipient, type, title, content, attempt,
+                () -> attempt(recipient, type, title, content, attempt + 1, onFinalOutcome))) {
+            return;
         }
+        recordOutcome(recipient, type, title, content, success, durationNanos);
+        if (onFinalOutcome != null) {
+            onFinalOutcome.accept(success);
+        }
+    }
+    
+    /**
+     * 构建历史记录过滤条件，参数为空表示不过滤
+     */
+    private Predicate<NotificationRecord> historyFilter(String type, Boolean success) {
+        return record -> (type == null || type.equalsIgnoreCase(record.getType()))
+                && (success == null || success == record.isSuccess());
     }
     
     /**
-     * 计算成功率
+     * 通过渠道的批量接口发送一组接收者，返回成功数量；整组被渠道拒绝时抛出 ChannelRejectedException
      */
-    private double calculateSuccessRate() {
-        long total = totalNotifications.get();
-        if (total == 0) {
-            return 0.0;
+    private int sendChunk(List<String> recipients, String type, String title, String content) {
+        List<Boolean> results;
+        long start = System.nanoTime();
+        try {
+            results = channelRegistry.sendBatch(type, recipients, title, content);
+        } catch (ChannelRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            metrics.recordError(channelRegistry.resolveType(type), recipients.size());
+            results = Collections.nCopies(recipients.size(), false);
+        }
+        if (results == null || results.size() != recipients.size()) {
+            // 结果数与接收者数不一致时无法逐个对应，整组按失败处理并逐个重试
+            metrics.recordError(channelRegistry.resolveType(type), recipients.size());
+            results = Collections.nCopies(recipients.size(), false);
         }
-        return (double) successfulNotifications.get() / total * 100;
+        long duration = System.nanoTime() - start;
+        
+        int successCount = 0;
+        for (int i = 0; i < recipients.size(); i++) {
+            boolean success = results.get(i);
+            // 批量中失败的接收者单独重试
+            completeAttempt(recipients.get(i), type, title, content, success, duration, 1, null);
+            if (success) {
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+    
+    /**
+     * 记录最终发送结果：写入通知历史并更新统计
+     */
+    private void recordOutcome(String recipient, String type, String title, String content, boolean success,
+                               long durationNanos) {
+        historyStore.record(recipient, type, title, content, success);
+        metrics.recordSend(channelRegistry.resolveType(type), success, durationNanos);
+    }
+    
+    /**
+     * 批量发送结果：成功数量，以及因渠道并发已满未发送的接收者
+     */
+    public record BatchResult(int successCount, List<String> rejectedRecipients) {
     }
 }
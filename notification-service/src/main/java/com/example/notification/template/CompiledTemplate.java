@@ -0,0 +1,123 @@
+package com.example.notification.template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译模板
+ * 模板文本在注册时解析为 文本片段 / 变量名 交替的数组，渲染时顺序追加到调用方提供的 StringBuilder，
+ * 不再做字符串查找和替换。缺失的变量渲染为空字符串
+ */
+public final class CompiledTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private final String source;
+    // segments[i] 为文本片段或变量名，isVariable[i] 标记其类型
+    private final String[] segments;
+    private final boolean[] isVariable;
+    private final int literalLength;
+
+    private CompiledTemplate(String source, String[] segments, boolean[] isVariable, int literalLength) {
+        this.source = source;
+        this.segments = segments;
+        this.isVariable = isVariable;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * 解析模板，支持 {{name}} 形式的变量，变量名两侧空白会被忽略；未闭合的 {{ 按普通文本处理
+     */
+    public static CompiledTemplate compile(String source) {
+        if (source == null) {
+            source = "";
+        }
+        List<String> segments = new ArrayList<>();
+        List<Boolean> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int literalLength = 0;
+        int position = 0;
+        while (position < source.length()) {
+            int open = source.indexOf(OPEN, position);
+            int close = open < 0 ? -1 : source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                literal.append(source, position, source.length());
+                break;
+            }
+            literal.append(source, position, open);
+            String name = source.substring(open + OPEN.length(), close).trim();
+            if (name.isEmpty()) {
+                literal.append(source, open, close + CLOSE.length());
+            } else {
+                if (literal.length() > 0) {
+                    segments.add(literal.toString());
+                    variables.add(false);
+                    literalLength += literal.length();
+                    literal.setLength(0);
+                }
+                segments.add(name);
+                variables.add(true);
+            }
+            position = close + CLOSE.length();
+        }
+        if (literal.length() > 0) {
+            segments.add(literal.toString());
+            variables.add(false);
+            literalLength += literal.length();
+        }
+
+        boolean[] isVariable = new boolean[variables.size()];
+        for (int i = 0; i < isVariable.length; i++) {
+            isVariable[i] = variables.get(i);
+        }
+        return new CompiledTemplate(source, segments.toArray(new String[0]), isVariable, literalLength);
+    }
+
+    /**
+     * 将渲染结果追加到 out
+     */
+    public void renderTo(Map<String, String> variables, StringBuilder out) {
+        for (int i = 0; i < segments.length; i++) {
+            if (!isVariable[i]) {
+                out.append(segments[i]);
+            } else if (variables != null) {
+                String value = variables.get(segments[i]);
+                if (value != null) {
+                    out.append(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * 使用可复用的 StringBuilder 渲染为字符串，builder 会被清空
+     */
+    public String render(Map<String, String> variables, StringBuilder builder) {
+        if (segments.length == 1 && !isVariable[0]) {
+            return segments[0];
+        }
+        builder.setLength(0);
+        builder.ensureCapacity(literalLength + 16 * segments.length);
+        renderTo(variables, builder);
+        return builder.toString();
+    }
+
+    /**
+     * 模板中引用的变量名
+     */
+    public List<String> getVariableNames() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < segments.length; i++) {
+            if (isVariable[i] && !names.contains(segments[i])) {
+                names.add(segments[i]);
+            }
+        }
+        return names;
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.notification.template;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 已注册的通知模板：标题和内容各自预编译
+ */
+public class NotificationTemplate {
+    private final String templateId;
+    private final CompiledTemplate title;
+    private final CompiledTemplate content;
+    private final long registeredAt;
+
+    public NotificationTemplate(String templateId, CompiledTemplate title, CompiledTemplate content) {
+        this.templateId = templateId;
+        this.title = title;
+        this.content = content;
+        this.registeredAt = System.currentTimeMillis();
+    }
+
+    public String getTemplateId() { return templateId; }
+    public String getTitle() { return title.getSource(); }
+    public String getContent() { return content.getSource(); }
+    public long getRegisteredAt() { return registeredAt; }
+
+    @JsonIgnore
+    public CompiledTemplate getCompiledTitle() { return title; }
+
+    @JsonIgnore
+    public CompiledTemplate getCompiledContent() { return content; }
+
+    /**
+     * 标题和内容中引用的全部变量名
+     */
+    public Set<String> getVariables() {
+        Set<String> variables = new LinkedHashSet<>(title.getVariableNames());
+        variables.addAll(content.getVariableNames());
+        return variables;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.notification.template;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 通知模板注册表
+ * 模板只在注册时编译一次，之后的批量发送直接使用缓存的编译结果
+ */
+@Component
+public class TemplateRegistry {
+
+    @Value("${notification.template.max-templates:1000}")
+    private int maxTemplates;
+
+    private final Map<String, NotificationTemplate> templates = new ConcurrentHashMap<>();
+
+    /**
+     * 注册（或覆盖）模板
+     */
+    public NotificationTemplate register(String templateId, String title, String content) {
+        if (templateId == null || templateId.isBlank()) {
+            throw new RuntimeException("模板ID不能为空");
+        }
+        if (content == null) {
+            throw new RuntimeException("模板内容不能为空");
+        }
+        if (!templates.containsKey(templateId) && templates.size() >= maxTemplates) {
+            throw new RuntimeException("模板数量已达上限: " + maxTemplates);
+        }
+        NotificationTemplate template = new NotificationTemplate(templateId,
+                CompiledTemplate.compile(title), CompiledTemplate.compile(content));
+        templates.put(templateId, template);
+        return template;
+    }
+
+    /**
+     * 编译请求中内联的模板（不注册），供不依赖各实例注册状态的调用方使用
+     */
+    public NotificationTemplate compileInline(String title, String content) {
+        if (content == null) {
+            throw new RuntimeException("模板内容不能为空");
+        }
+        return new NotificationTemplate(null, CompiledTemplate.compile(title), CompiledTemplate.compile(content));
+    }
+
+    public Optional<NotificationTemplate> getTemplate(String templateId) {
+        return Optional.ofNullable(templates.get(templateId));
+    }
+
+    public boolean remove(String templateId) {
+        return templates.remove(templateId) != null;
+    }
+
+    public int size() {
+        return templates.size();
+    }
+}
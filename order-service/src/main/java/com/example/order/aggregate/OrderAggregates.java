@@ -0,0 +1,343 @@
+package com.example.order.aggregate;
+
+import com.example.order.entity.Order;
+import com.example.order.entity.OrderStatus;
+import com.example.order.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 订单聚合统计（增量维护）
+ * 启动时从订单表重建一次，之后在创建、状态变更、取消、删除时按增量更新，读取统计为 O(1)。
+ * 事务内的变更先累积在事务绑定的增量中，提交后才合并，回滚时直接丢弃，保证与数据库一致。
+ * 增量只覆盖本实例的写入，多实例部署时由定时重新同步按 GROUP BY 结果校正其他实例写入造成的偏差
+ */
+@Component
+public class OrderAggregates {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderAggregates.class);
+
+    private static final int STATUS_COUNT = OrderStatus.values().length;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Value("${order.aggregates.resync-interval-ms:30000}")
+    private long resyncIntervalMs;
+
+    // 按状态的订单数和金额、用户统计及版本号，由 this 锁保护
+    private final long[] statusCounts = new long[STATUS_COUNT];
+    private final BigDecimal[] statusAmounts = new BigDecimal[STATUS_COUNT];
+    private long totalOrders;
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+    // 每合并一次增量加一，重新同步据此判断查询期间是否有本实例的增量合并
+    private long version;
+
+    private final Map<Long, UserTotals> userTotals = new ConcurrentHashMap<>();
+
+    // 已进入提交但尚未合并增量的事务数
+    private final AtomicInteger committing = new AtomicInteger();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-aggregates-resync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+        if (resyncIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::resync, resyncIntervalMs, resyncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 从订单表全量重建
+     */
+    public void rebuild() {
+        List<Object[]> byStatus = orderRepository.aggregateByStatus();
+        List<Object[]> byUser = orderRepository.aggregateByUser();
+        synchronized (this) {
+            install(byStatus, byUser);
+        }
+    }
+
+    /**
+     * 定时重新同步：查询期间本实例没有事务处于提交中、也没有增量合并时才替换，
+     * 否则无法判断查询结果是否已包含这些增量，留待下一次重新同步
+     */
+    private void resync() {
+        try {
+            long startVersion;
+            synchronized (this) {
+                startVersion = version;
+            }
+            if (committing.get() > 0) {
+                return;
+            }
+            List<Object[]> byStatus = orderRepository.aggregateByStatus();
+            List<Object[]> byUser = orderRepository.aggregateByUser();
+            synchronized (this) {
+                if (version != startVersion || committing.get() > 0) {
+                    log.debug("订单统计重新同步期间有增量合并，跳过本次");
+                    return;
+                }
+                install(byStatus, byUser);
+            }
+        } catch (Exception e) {
+            log.warn("订单统计重新同步失败: {}", e.getMessage());
+        }
+    }
+
+    // 须持有 this 锁
+    private void install(List<Object[]> byStatus, List<Object[]> byUser) {
+        totalOrders = 0;
+        totalAmount = BigDecimal.ZERO;
+        for (int i = 0; i < STATUS_COUNT; i++) {
+            statusCounts[i] = 0;
+            statusAmounts[i] = BigDecimal.ZERO;
+        }
+        for (Object[] row : byStatus) {
+            int index = ((OrderStatus) row[0]).ordinal();
+            statusCounts[index] = (Long) row[1];
+            statusAmounts[index] = row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
+            totalOrders += statusCounts[index];
+            totalAmount = totalAmount.add(statusAmounts[index]);
+        }
+        Map<Long, UserTotals> loaded = new HashMap<>();
+        for (Object[] row : byUser) {
+            loaded.put((Long) row[0], new UserTotals((Long) row[1],
+                    row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO));
+        }
+        userTotals.keySet().retainAll(loaded.keySet());
+        userTotals.putAll(loaded);
+        version++;
+    }
+
+    /**
+     * 记录新建订单
+     */
+    public void orderCreated(Order order) {
+        delta().add(order.getUserId(), order.getStatus(), order.getTotalAmount(), 1);
+    }
+
+    /**
+     * 记录订单状态变更
+     */
+    public void statusChanged(Order order, OrderStatus previous) {
+        if (previous == order.getStatus()) {
+            return;
+        }
+        delta().moveStatus(previous, order.getStatus(), 1, order.getTotalAmount());
+    }
+
+    /**
+     * 记录一批订单由 previous 变为 next（批量状态变更）
+     */
+    public void statusChanged(OrderStatus previous, OrderStatus next, long count, BigDecimal amount) {
+        if (previous == next || count == 0) {
+            return;
+        }
+        delta().moveStatus(previous, next, count, amount);
+    }
+
+    /**
+     * 记录删除订单
+     */
+    public void orderDeleted(Order order) {
+        delta().add(order.getUserId(), order.getStatus(), order.getTotalAmount(), -1);
+    }
+
+    /**
+     * 获取全局统计快照
+     */
+    public synchronized Snapshot snapshot() {
+        Map<OrderStatus, StatusTotals> byStatus = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            byStatus.put(status, new StatusTotals(statusCounts[status.ordinal()], statusAmounts[status.ordinal()]));
+        }
+        return new Snapshot(totalOrders, totalAmount, byStatus);
+    }
+
+    /**
+     * 获取用户统计
+     */
+    public UserTotals getUserTotals(Long userId) {
+        return userTotals.getOrDefault(userId, new UserTotals(0, BigDecimal.ZERO));
+    }
+
+    /**
+     * 获取当前事务的增量；不在事务中时返回立即合并的增量
+     */
+    private Delta delta() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Delta(true);
+        }
+        Delta delta = (Delta) TransactionSynchronizationManager.getResource(this);
+        if (delta == null) {
+            Delta pending = new Delta(false);
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean counted;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    committing.incrementAndGet();
+                    counted = true;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OrderAggregates.this);
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            apply(pending);
+                        }
+                    } finally {
+                        if (counted) {
+                            committing.decrementAndGet();
+                        }
+                    }
+                }
+            });
+            delta = pending;
+        }
+        return delta;
+    }
+
+    private synchronized void apply(Delta delta) {
+        totalOrders += delta.totalCount;
+        totalAmount = totalAmount.add(delta.totalAmount);
+        for (int i = 0; i < STATUS_COUNT; i++) {
+            statusCounts[i] += delta.statusCounts[i];
+            statusAmounts[i] = statusAmounts[i].add(delta.statusAmounts[i]);
+        }
+        delta.userDeltas.forEach((userId, change) -> userTotals.compute(userId, (id, current) -> {
+            UserTotals updated = current == null ? change : current.plus(change);
+            return updated.getTotalOrders() <= 0 ? null : updated;
+        }));
+        version++;
+    }
+
+    /**
+     * 一次事务内累积的变更
+     */
+    private final class Delta {
+        private final boolean immediate;
+        private long totalCount;
+        private BigDecimal totalAmount = BigDecimal.ZERO;
+        private final long[] statusCounts = new long[STATUS_COUNT];
+        private final BigDecimal[] statusAmounts = new BigDecimal[STATUS_COUNT];
+        private final Map<Long, UserTotals> userDeltas = new HashMap<>();
+
+        private Delta(boolean immediate) {
+            this.immediate = immediate;
+            for (int i = 0; i < STATUS_COUNT; i++) {
+                statusAmounts[i] = BigDecimal.ZERO;
+            }
+        }
+
+        private void add(Long userId, OrderStatus status, BigDecimal amount, int sign) {
+            BigDecimal signedAmount = sign > 0 ? amount : amount.negate();
+            totalCount += sign;
+            totalAmount = totalAmount.add(signedAmount);
+            statusCounts[status.ordinal()] += sign;
+            statusAmounts[status.ordinal()] = statusAmounts[status.ordinal()].add(signedAmount);
+            userDeltas.merge(userId, new UserTotals(sign, signedAmount), UserTotals::plus);
+            flushIfImmediate();
+        }
+
+        private void moveStatus(OrderStatus from, OrderStatus to, long count, BigDecimal amount) {
+            statusCounts[from.ordinal()] -= count;
+            statusAmounts[from.ordinal()] = statusAmounts[from.ordinal()].subtract(amount);
+            statusCounts[to.ordinal()] += count;
+            statusAmounts[to.ordinal()] = statusAmounts[to.ordinal()].add(amount);
+            flushIfImmediate();
+        }
+
+        private void flushIfImmediate() {
+            if (immediate) {
+                apply(this);
+            }
+        }
+    }
+
+    /**
+     * 全局统计快照
+     */
+    public static class Snapshot {
+        private final long totalOrders;
+        private final BigDecimal totalAmount;
+        private final Map<OrderStatus, StatusTotals> byStatus;
+
+        public Snapshot(long totalOrders, BigDecimal totalAmount, Map<OrderStatus, StatusTotals> byStatus) {
+            this.totalOrders = totalOrders;
+            this.totalAmount = totalAmount;
+            this.byStatus = byStatus;
+        }
+
+        public long getTotalOrders() { return totalOrders; }
+        public BigDecimal getTotalAmount() { return totalAmount; }
+        public Map<OrderStatus, StatusTotals> getByStatus() { return byStatus; }
+    }
+
+    /**
+     * 单个状态的订单数和金额
+     */
+    public static class StatusTotals {
+        private final long count;
+        private final BigDecimal amount;
+
+        public StatusTotals(long count, BigDecimal amount) {
+            this.count = count;
+            this.amount = amount;
+        }
+
+        public long getCount() { return count; }
+        public BigDecimal getAmount() { return amount; }
+    }
+
+    /**
+     * 单个用户的订单数和金额
+     */
+    public static class UserTotals {
+        private final long totalOrders;
+        private final BigDecimal totalAmount;
+
+        public UserTotals(long totalOrders, BigDecimal totalAmount) {
+            this.totalOrders = totalOrders;
+            this.totalAmount = totalAmount;
+        }
+
+        UserTotals plus(UserTotals other) {
+            return new UserTotals(totalOrders + other.totalOrders, totalAmount.add(other.totalAmount));
+        }
+
+        public long getTotalOrders() { return totalOrders; }
+        public BigDecimal getTotalAmount() { return totalAmount; }
+    }
+}
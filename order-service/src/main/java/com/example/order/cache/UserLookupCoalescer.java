@@ -0,0 +1,236 @@
+package com.example.order.cache;
+
+import com.example.order.feign.UserDto;
+import com.example.order.feign.UserServiceClient;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户查询合并器（DataLoader 风格）
+ * 收集 window-ms 内的并发查询，或攒满 max-batch-size 个ID时立即发出，
+ * 合并为一次 /api/users/batch 调用，再把结果分发给各个调用方；同一窗口内重复的ID共享同一个结果
+ */
+@Component
+public class UserLookupCoalescer {
+
+    @Autowired
+    private UserServiceClient userServiceClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${order.user-lookup.coalesce.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order.user-lookup.coalesce.window-ms:5}")
+    private long windowMs;
+
+    @Value("${order.user-lookup.coalesce.max-batch-size:100}")
+    private int maxBatchSize;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-user-lookup-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 批量请求在虚拟线程中执行，不阻塞定时线程
+    private final ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // 当前正在收集的批次，按 lock 保护；值为空表示用户不存在
+    private final Object lock = new Object();
+    private Map<Long, CompletableFuture<Optional<UserDto>>> pending = new LinkedHashMap<>();
+
+    private DistributionSummary batchSizeSummary;
+    private Timer batchTimer;
+    private Counter lookupCounter;
+    private Counter coalescedCounter;
+
+    @PostConstruct
+    public void init() {
+        batchSizeSummary = DistributionSummary.builder("order.user.lookup.batch.size")
+                .description("每次批量查询用户服务的ID数")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue((double) Math.max(1, maxBatchSize))
+                .register(meterRegistry);
+        batchTimer = Timer.builder("order.user.lookup.batch")
+                .description("批量查询用户服务的耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        lookupCounter = Counter.builder("order.user.lookup.requests")
+                .description("提交给合并器的用户查询次数")
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("order.user.lookup.coalesced")
+                .description("与同一窗口内相同ID合并的查询次数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        requestExecutor.shutdownNow();
+    }
+
+    /**
+     * 查询单个用户（阻塞直到所在批次返回）：返回空表示用户不存在，用户服务调用失败时抛出异常
+     */
+    public Optional<UserDto> get(Long userId) {
+        if (!enabled) {
+            try {
+                return Optional.ofNullable(userServiceClient.getUserById(userId));
+            } catch (FeignException.NotFound e) {
+                // 未启用熔断降级时 404 直接以异常形式抛出
+                return Optional.empty();
+            }
+        }
+        return join(load(userId));
+    }
+
+    /**
+     * 查询多个用户（阻塞直到全部返回），超过 max-batch-size 时分为多个批次
+     */
+    public Map<Long, Optional<UserDto>> getAll(Collection<? extends Long> userIds) {
+        Map<Long, Optional<UserDto>> users = new HashMap<>();
+        if (!enabled) {
+            for (Long userId : userIds) {
+                users.put(userId, get(userId));
+            }
+            return users;
+        }
+        Map<Long, CompletableFuture<Optional<UserDto>>> futures = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            futures.put(userId, load(userId));
+        }
+        futures.forEach((userId, future) -> users.put(userId, join(future)));
+        return users;
+    }
+
+    /**
+     * 获取合并统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("windowMs", windowMs);
+        statistics.put("maxBatchSize", maxBatchSize);
+        statistics.put("lookups", (long) lookupCounter.count());
+        statistics.put("coalesced", (long) coalescedCounter.count());
+
+        HistogramSnapshot snapshot = batchSizeSummary.takeSnapshot();
+        Map<String, Object> batchSize = new HashMap<>();
+        batchSize.put("batches", snapshot.count());
+        batchSize.put("mean", snapshot.mean());
+        batchSize.put("max", snapshot.max());
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            batchSize.put("p" + Math.round(percentile.percentile() * 100), percentile.value());
+        }
+        statistics.put("batchSize", batchSize);
+        statistics.put("averageBatchMillis", batchTimer.mean(TimeUnit.MILLISECONDS));
+        return statistics;
+    }
+
+    /**
+     * 把查询加入当前批次：批次的第一个查询启动收集窗口，攒满时立即发出
+     */
+    private CompletableFuture<Optional<UserDto>> load(Long userId) {
+        lookupCounter.increment();
+        Map<Long, CompletableFuture<Optional<UserDto>>> full = null;
+        CompletableFuture<Optional<UserDto>> future;
+        synchronized (lock) {
+            future = pending.get(userId);
+            if (future != null) {
+                coalescedCounter.increment();
+                return future;
+            }
+            future = new CompletableFuture<>();
+            Map<Long, CompletableFuture<Optional<UserDto>>> batch = pending;
+            if (batch.isEmpty()) {
+                scheduler.schedule(() -> flush(batch), windowMs, TimeUnit.MILLISECONDS);
+            }
+            batch.put(userId, future);
+            if (batch.size() >= maxBatchSize) {
+                full = batch;
+                pending = new LinkedHashMap<>();
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    /**
+     * 收集窗口结束：批次仍未因攒满而发出时发出
+     */
+    private void flush(Map<Long, CompletableFuture<Optional<UserDto>>> batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                return;
+            }
+            pending = new LinkedHashMap<>();
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Map<Long, CompletableFuture<Optional<UserDto>>> batch) {
+        requestExecutor.execute(() -> send(batch));
+    }
+
+    /**
+     * 发出一次批量查询并把结果分发给各调用方；返回结果中没有的ID视为用户不存在
+     */
+    private void send(Map<Long, CompletableFuture<Optional<UserDto>>> batch) {
+        batchSizeSummary.record(batch.size());
+        long start = System.nanoTime();
+        try {
+            List<UserDto> users = userServiceClient.getUsersByIds(new ArrayList<>(batch.keySet()));
+            Map<Long, UserDto> usersById = new HashMap<>();
+            if (users != null) {
+                for (UserDto user : users) {
+                    usersById.put(user.getId(), user);
+                }
+            }
+            batch.forEach((userId, future) -> future.complete(Optional.ofNullable(usersById.get(userId))));
+        } catch (RuntimeException e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Optional<UserDto> join(CompletableFuture<Optional<UserDto>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
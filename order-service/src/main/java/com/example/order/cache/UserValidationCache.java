@@ -0,0 +1,190 @@
+package com.example.order.cache;
+
+import com.example.order.feign.UserDto;
+import com.example.order.feign.UserServiceClientFallback;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 用户验证本地缓存
+ * 位于 UserServiceClient 之前，减少创建订单时对用户服务的同步调用：
+ * 存在的用户按 ttl 缓存，不存在的用户按较短的 negative-ttl 缓存；
+ * 热点用户在写入 refresh-after 之后被访问时异步刷新，期间继续返回旧值。
+ * 未命中的用户经 UserLookupCoalescer 与其他并发查询合并为批量请求。
+ * 降级返回的用户（用户服务不可用）从不缓存
+ */
+@Component
+public class UserValidationCache {
+
+    @Autowired
+    private UserLookupCoalescer userLookupCoalescer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${order.user-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order.user-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${order.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${order.user-cache.negative-ttl-seconds:30}")
+    private long negativeTtlSeconds;
+
+    @Value("${order.user-cache.refresh-after-seconds:60}")
+    private long refreshAfterSeconds;
+
+    // 值为空表示用户不存在（负缓存）
+    private LoadingCache<Long, Optional<UserDto>> cache;
+    // 异步刷新在虚拟线程中执行：加载会阻塞等待合并批次，不占用公共 ForkJoinPool
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PostConstruct
+    public void init() {
+        long ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        long negativeTtlNanos = Duration.ofSeconds(negativeTtlSeconds).toNanos();
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Long, Optional<UserDto>>() {
+                    @Override
+                    public long expireAfterCreate(Long userId, Optional<UserDto> user, long currentTime) {
+                        return user.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long userId, Optional<UserDto> user, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(userId, user, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long userId, Optional<UserDto> user, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .refreshAfterWrite(Duration.ofSeconds(refreshAfterSeconds))
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Optional<UserDto> load(Long userId) {
+                        return UserValidationCache.this.load(userId);
+                    }
+
+                    @Override
+                    public Map<Long, Optional<UserDto>> loadAll(Set<? extends Long> userIds) {
+                        return UserValidationCache.this.loadAll(userIds);
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "order.user-cache");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 获取用户：返回空表示用户不存在；用户服务不可用时返回降级用户（不缓存）
+     */
+    public Optional<UserDto> getUser(Long userId) {
+        if (!enabled) {
+            return userLookupCoalescer.get(userId);
+        }
+        try {
+            return cache.get(userId);
+        } catch (FallbackUserException e) {
+            return Optional.of(e.getFallbackUser());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof FallbackUserException fallback) {
+                return Optional.of(fallback.getFallbackUser());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 批量获取用户，未缓存的用户合并查询：值为空表示用户不存在，结果中没有的ID表示用户服务不可用
+     */
+    public Map<Long, Optional<UserDto>> getUsers(Set<Long> userIds) {
+        return enabled ? cache.getAll(userIds) : loadAll(userIds);
+    }
+
+    /**
+     * 仅查询缓存，不触发加载：未缓存时返回 null，已缓存时返回缓存结果（空表示用户不存在）
+     */
+    public Optional<UserDto> getIfPresent(Long userId) {
+        return enabled ? cache.getIfPresent(userId) : null;
+    }
+
+    /**
+     * 写入由其他途径查询到的结果（user 为 null 表示用户不存在），降级用户不写入
+     */
+    public void put(Long userId, UserDto user) {
+        if (!enabled || user != null && UserServiceClientFallback.FALLBACK_USERNAME.equals(user.getUsername())) {
+            return;
+        }
+        cache.put(userId, Optional.ofNullable(user));
+    }
+
+    /**
+     * 加载用户；降级结果以异常形式返回，Caffeine 不会缓存失败的加载，刷新失败时保留旧值
+     */
+    private Optional<UserDto> load(Long userId) {
+        Optional<UserDto> user = userLookupCoalescer.get(userId);
+        if (user.isPresent() && isFallback(user.get())) {
+            throw new FallbackUserException(user.get());
+        }
+        return user;
+    }
+
+    /**
+     * 批量加载用户；降级结果不放入返回值，Caffeine 不会缓存缺失的键
+     */
+    private Map<Long, Optional<UserDto>> loadAll(Set<? extends Long> userIds) {
+        Map<Long, Optional<UserDto>> users = userLookupCoalescer.getAll(userIds);
+        users.values().removeIf(user -> user.isPresent() && isFallback(user.get()));
+        return users;
+    }
+
+    private static boolean isFallback(UserDto user) {
+        return UserServiceClientFallback.FALLBACK_USERNAME.equals(user.getUsername());
+    }
+
+    /**
+     * 用户服务不可用，携带降级用户
+     */
+    private static class FallbackUserException extends RuntimeException {
+        private final UserDto fallbackUser;
+
+        FallbackUserException(UserDto fallbackUser) {
+            super("用户服务不可用", null, false, false);
+            this.fallbackUser = fallbackUser;
+        }
+
+        UserDto getFallbackUser() {
+            return fallbackUser;
+        }
+    }
+}
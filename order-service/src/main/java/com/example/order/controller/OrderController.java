@@ -1,17 +1,39 @@
 package com.example.order.controller;
 
+import com.example.order.cache.UserLookupCoalescer;
+import com.example.order.dto.OrderPage;
+import com.example.order.dto.OrderSearchCriteria;
+import com.example.order.dto.OrderSummary;
 import com.example.order.entity.Order;
+import com.example.order.entity.OrderStatus;
+import com.example.order.export.OrderExportFormat;
+import com.example.order.export.OrderExportWriter;
+import com.example.order.outbox.OutboxRelay;
+import com.example.order.service.AsyncOrderService;
+import com.example.order.service.OrderSearchService;
 import com.example.order.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * 订单控制器
@@ -24,6 +46,21 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
     
+    @Autowired
+    private AsyncOrderService asyncOrderService;
+    
+    @Autowired
+    private OrderSearchService orderSearchService;
+    
+    @Autowired
+    private OutboxRelay outboxRelay;
+    
+    @Autowired
+    private UserLookupCoalescer userLookupCoalescer;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @Value("${app.name:订单服务}")
     private String appName;
     
@@ -44,12 +81,104 @@ public class OrderController {
     }
     
     /**
-     * 获取所有订单
+     * 分页获取订单
+     * after 为上一页返回的 nextCursor，limit 超过上限时按上限处理
      */
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        List<Order> orders = orderService.getAllOrders();
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<?> getOrders(@RequestParam(required = false) Long after,
+                                       @RequestParam(defaultValue = "50") int limit,
+                                       @RequestParam(required = false) String status) {
+        try {
+            OrderPage page = orderService.getOrders(after, limit, status);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    /**
+     * 搜索订单：商品名称全文检索（q）或前缀匹配（prefix），创建时间范围 [from, to)，金额范围，状态
+     * 结果按订单ID键集分页，after 为上一页返回的 nextCursor
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchOrders(@RequestParam(required = false) String q,
+                                          @RequestParam(required = false) String prefix,
+                                          @RequestParam(required = false)
+                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                          @RequestParam(required = false)
+                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                          @RequestParam(required = false) BigDecimal minAmount,
+                                          @RequestParam(required = false) BigDecimal maxAmount,
+                                          @RequestParam(required = false) String status,
+                                          @RequestParam(required = false) Long after,
+                                          @RequestParam(defaultValue = "50") int limit) {
+        try {
+            OrderSearchCriteria criteria = new OrderSearchCriteria(
+                    q == null || q.isBlank() ? null : q,
+                    prefix == null || prefix.isEmpty() ? null : prefix,
+                    from, to, minAmount, maxAmount, OrderStatus.parse(status));
+            OrderPage page = orderSearchService.search(criteria, after, limit);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    /**
+     * 流式导出订单（CSV 或 NDJSON），可按创建时间范围 [from, to) 和状态过滤
+     * 逐行从数据库游标写到响应，客户端断开时写入失败，查询随之关闭
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "csv") String format,
+                                                              @RequestParam(required = false)
+                                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                              LocalDateTime from,
+                                                              @RequestParam(required = false)
+                                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                              LocalDateTime to,
+                                                              @RequestParam(required = false) String status) {
+        OrderExportFormat exportFormat;
+        OrderStatus orderStatus;
+        try {
+            exportFormat = OrderExportFormat.parse(format);
+            orderStatus = OrderStatus.parse(status);
+            if (from != null && to != null && !from.isBefore(to)) {
+                throw new RuntimeException("导出时间范围无效: from 必须早于 to");
+            }
+        } catch (RuntimeException e) {
+            // 返回类型为流式响应体，错误信息同样以流的方式写出
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, error));
+        }
+        
+        ObjectWriter jsonWriter = objectMapper.writerFor(OrderSummary.class);
+        StreamingResponseBody body = out -> {
+            OrderExportWriter writer = new OrderExportWriter(exportFormat, out, jsonWriter);
+            try {
+                orderService.exportOrders(from, to, orderStatus, order -> {
+                    try {
+                        writer.write(order);
+                        return true;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+        };
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=orders." + exportFormat.getExtension())
+                .body(body);
     }
     
     /**
@@ -63,12 +192,50 @@ public class OrderController {
     }
     
     /**
-     * 根据用户ID获取订单列表
+     * 根据用户ID分页获取订单
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Order>> getOrdersByUserId(@PathVariable Long userId) {
-        List<Order> orders = orderService.getOrdersByUserId(userId);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<?> getOrdersByUserId(@PathVariable Long userId,
+                                               @RequestParam(required = false) Long after,
+                                               @RequestParam(defaultValue = "50") int limit,
+                                               @RequestParam(required = false) String status) {
+        try {
+            OrderPage page = orderService.getOrdersByUserId(userId, after, limit, status);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    /**
+     * 获取订单事件发件箱的投递统计
+     */
+    @GetMapping("/outbox/statistics")
+    public ResponseEntity<Map<String, Object>> getOutboxStatistics() {
+        return ResponseEntity.ok(outboxRelay.getStatistics());
+    }
+    
+    /**
+     * 获取用户查询合并统计（批次数、批大小分布）
+     */
+    @GetMapping("/user-lookup/statistics")
+    public ResponseEntity<Map<String, Object>> getUserLookupStatistics() {
+        return ResponseEntity.ok(userLookupCoalescer.getStatistics());
+    }
+    
+    /**
+     * 获取用户的订单统计信息
+     */
+    @GetMapping("/user/{userId}/statistics")
+    public ResponseEntity<Map<String, Object>> getUserOrderStatistics(@PathVariable Long userId) {
+        var totals = orderService.getUserOrderStatistics(userId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("userId", userId);
+        response.put("totalOrders", totals.getTotalOrders());
+        response.put("totalAmount", totals.getTotalAmount());
+        return ResponseEntity.ok(response);
     }
     
     /**
@@ -101,6 +268,48 @@ public class OrderController {
         }
     }
     
+    /**
+     * 异步创建订单
+     * 用户验证不占用请求线程，用户服务慢的实例会被对冲请求绕过
+     */
+    @PostMapping("/async")
+    public CompletableFuture<ResponseEntity<?>> createOrderAsync(@RequestBody CreateOrderRequest request) {
+        return asyncOrderService.createOrder(
+                        request.getUserId(),
+                        request.getProductName(),
+                        request.getQuantity(),
+                        request.getUnitPrice())
+                .<ResponseEntity<?>>thenApply(order -> ResponseEntity.status(HttpStatus.CREATED).body(order))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", cause.getMessage());
+                    return ResponseEntity.badRequest().body(error);
+                });
+    }
+    
+    /**
+     * 批量创建订单，返回每个订单的创建结果
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createOrders(@RequestBody BatchCreateOrderRequest request) {
+        try {
+            List<OrderService.BatchItemResult> results = orderService.createOrders(request.getOrders());
+            long successCount = results.stream().filter(OrderService.BatchItemResult::isSuccess).count();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("total", results.size());
+            response.put("successCount", successCount);
+            response.put("failureCount", results.size() - successCount);
+            response.put("results", results);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
     /**
      * 更新订单状态
      */
@@ -108,9 +317,11 @@ public class OrderController {
     public ResponseEntity<?> updateOrderStatus(@PathVariable Long id, 
                                                @RequestBody UpdateOrderStatusRequest request) {
         try {
-            return orderService.updateOrderStatus(id, request.getStatus())
+            return orderService.updateOrderStatus(id, request.getStatus(), request.getVersion())
                     .map(order -> ResponseEntity.ok(order))
                     .orElse(ResponseEntity.notFound().build());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return conflict(id);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -122,10 +333,38 @@ public class OrderController {
      * 取消订单
      */
     @PutMapping("/{id}/cancel")
-    public ResponseEntity<Order> cancelOrder(@PathVariable Long id) {
-        return orderService.cancelOrder(id)
-                .map(order -> ResponseEntity.ok(order))
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> cancelOrder(@PathVariable Long id) {
+        try {
+            return orderService.cancelOrder(id)
+                    .map(order -> ResponseEntity.ok(order))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return conflict(id);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    /**
+     * 批量变更订单状态，例如一次确认上千个订单
+     */
+    @PostMapping("/status/bulk")
+    public ResponseEntity<?> bulkUpdateOrderStatus(@RequestBody BulkUpdateOrderStatusRequest request) {
+        try {
+            return ResponseEntity.ok(orderService.bulkTransition(request.getOrderIds(), request.getStatus()));
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    private ResponseEntity<Map<String, String>> conflict(Long id) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "订单已被其他请求修改，请刷新后重试: " + id);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
     }
     
     /**
@@ -169,8 +408,30 @@ public class OrderController {
         public void setUnitPrice(BigDecimal unitPrice) { this.unitPrice = unitPrice; }
     }
     
+    public static class BatchCreateOrderRequest {
+        private List<OrderService.OrderItem> orders;
+        
+        public List<OrderService.OrderItem> getOrders() { return orders; }
+        public void setOrders(List<OrderService.OrderItem> orders) { this.orders = orders; }
+    }
+    
     public static class UpdateOrderStatusRequest {
         private String status;
+        private Long version;  // 可选，客户端读取到的版本号，不一致时返回 409
+        
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+        
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+    }
+    
+    public static class BulkUpdateOrderStatusRequest {
+        private List<Long> orderIds;
+        private String status;
+        
+        public List<Long> getOrderIds() { return orderIds; }
+        public void setOrderIds(List<Long> orderIds) { this.orderIds = orderIds; }
         
         public String getStatus() { return status; }
         public void setStatus(String status) { this.status = status; }
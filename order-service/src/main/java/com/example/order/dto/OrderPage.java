@@ -0,0 +1,22 @@
+package com.example.order.dto;
+
+import java.util.List;
+
+/**
+ * 订单分页结果
+ * nextCursor 为下一页请求的 after 参数（本页最后一个订单ID），没有更多订单时为 null
+ */
+public class OrderPage {
+    private final List<OrderSummary> orders;
+    private final Long nextCursor;
+
+    public OrderPage(List<OrderSummary> orders, Long nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters
+    public List<OrderSummary> getOrders() { return orders; }
+    public Long getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return nextCursor != null; }
+}
@@ -0,0 +1,20 @@
+package com.example.order.dto;
+
+import com.example.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单搜索条件，未指定的条件为 null
+ * query 为商品名称全文检索关键词（空格分隔的各部分都须出现），prefix 为商品名称前缀（区分大小写），
+ * 创建时间范围为 [from, to)，金额范围为 [minAmount, maxAmount]
+ */
+public record OrderSearchCriteria(String query,
+                                  String prefix,
+                                  LocalDateTime from,
+                                  LocalDateTime to,
+                                  BigDecimal minAmount,
+                                  BigDecimal maxAmount,
+                                  OrderStatus status) {
+}
@@ -0,0 +1,20 @@
+package com.example.order.dto;
+
+import com.example.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单列表只读投影
+ * 列表查询直接构造该对象，不加载受管实体，也就没有脏检查和一级缓存开销
+ */
+public record OrderSummary(Long id,
+                           String orderNumber,
+                           Long userId,
+                           String productName,
+                           Integer quantity,
+                           BigDecimal totalAmount,
+                           OrderStatus status,
+                           LocalDateTime createdAt) {
+}
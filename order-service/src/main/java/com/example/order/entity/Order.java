@@ -8,11 +8,20 @@ import java.time.LocalDateTime;
  * 订单实体类
  */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_id", columnList = "user_id"),
+        @Index(name = "idx_orders_status", columnList = "status"),
+        @Index(name = "idx_orders_user_id_status", columnList = "user_id, status"),
+        @Index(name = "idx_orders_product_name", columnList = "product_name"),
+        @Index(name = "idx_orders_created_at", columnList = "created_at"),
+        @Index(name = "idx_orders_total_amount", columnList = "total_amount")
+})
 public class Order {
     
+    // 使用序列 + pooled 优化器：每次从数据库取一段 ID，插入时无需回读自增值，Hibernate 才能进行 JDBC 批量插入
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "order_number", unique = true, nullable = false)
@@ -43,6 +52,10 @@ public class Order {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // 乐观锁版本号，并发修改同一订单时后提交者失败
+    @Version
+    private Long version;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -100,4 +113,7 @@ public class Order {
     
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
@@ -1,12 +1,55 @@
 package com.example.order.entity;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * 订单状态枚举
+ * 状态流转：PENDING -> CONFIRMED -> SHIPPED -> DELIVERED，发货前可取消
  */
 public enum OrderStatus {
     PENDING,    // 待处理
     CONFIRMED,  // 已确认
     SHIPPED,    // 已发货
     DELIVERED,  // 已送达
-    CANCELLED   // 已取消
+    CANCELLED;  // 已取消
+    
+    /**
+     * 解析状态参数（忽略大小写），为空时返回 null
+     */
+    public static OrderStatus parse(String status) {
+        if (status == null || status.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("无效的订单状态: " + status);
+        }
+    }
+    
+    /**
+     * 是否允许从当前状态变更为 next
+     */
+    public boolean canTransitionTo(OrderStatus next) {
+        return switch (this) {
+            case PENDING -> next == CONFIRMED || next == CANCELLED;
+            case CONFIRMED -> next == SHIPPED || next == CANCELLED;
+            case SHIPPED -> next == DELIVERED;
+            case DELIVERED, CANCELLED -> false;
+        };
+    }
+    
+    /**
+     * 允许变更为 next 的所有来源状态
+     */
+    public static Set<OrderStatus> sourcesOf(OrderStatus next) {
+        Set<OrderStatus> sources = EnumSet.noneOf(OrderStatus.class);
+        for (OrderStatus status : values()) {
+            if (status.canTransitionTo(next)) {
+                sources.add(status);
+            }
+        }
+        return sources;
+    }
 }
@@ -0,0 +1,88 @@
+package com.example.order.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 订单事件发件箱
+ * 与订单变更在同一事务中写入，由中继异步投递到通知服务，投递成功后删除
+ */
+@Entity
+@Table(name = "order_outbox")
+public class OutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_outbox_seq")
+    @SequenceGenerator(name = "order_outbox_seq", sequenceName = "order_outbox_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+    
+    @Column(name = "order_number", nullable = false)
+    private String orderNumber;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "product_name", nullable = false)
+    private String productName;
+    
+    // 订单变更后的状态；新建订单为 PENDING
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus status;
+    
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    // 认领信息：中继在短事务中认领一批事件后再在事务外投递；同一批事件共享 claimKey（也作为幂等键）
+    @Column(name = "claim_key", length = 36)
+    private String claimKey;
+    
+    @Column(name = "claimed_by", length = 36)
+    private String claimedBy;
+    
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+    
+    // Constructors
+    public OutboxEvent() {}
+    
+    public OutboxEvent(String eventType, Long orderId, String orderNumber, Long userId,
+                       String productName, OrderStatus status) {
+        this.eventType = eventType;
+        this.orderId = orderId;
+        this.orderNumber = orderNumber;
+        this.userId = userId;
+        this.productName = productName;
+        this.status = status;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Getters
+    public Long getId() { return id; }
+    public Long getOrderId() { return orderId; }
+    public String getOrderNumber() { return orderNumber; }
+    public Long getUserId() { return userId; }
+    public String getProductName() { return productName; }
+    public OrderStatus getStatus() { return status; }
+    public String getEventType() { return eventType; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    
+    public String getClaimKey() { return claimKey; }
+    public String getClaimedBy() { return claimedBy; }
+    public LocalDateTime getClaimedUntil() { return claimedUntil; }
+    
+    /**
+     * 由 owner 认领到 until 为止
+     */
+    public void claim(String claimKey, String owner, LocalDateTime until) {
+        this.claimKey = claimKey;
+        this.claimedBy = owner;
+        this.claimedUntil = until;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.order.export;
+
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 订单导出格式
+ */
+public enum OrderExportFormat {
+    CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+    
+    private final MediaType mediaType;
+    private final String extension;
+    
+    OrderExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+    
+    public MediaType getMediaType() { return mediaType; }
+    public String getExtension() { return extension; }
+    
+    /**
+     * 解析格式参数（忽略大小写）
+     */
+    public static OrderExportFormat parse(String format) {
+        try {
+            return valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("不支持的导出格式: " + format);
+        }
+    }
+}
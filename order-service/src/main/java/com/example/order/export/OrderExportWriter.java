@@ -0,0 +1,87 @@
+package com.example.order.export;
+
+import com.example.order.dto.OrderSummary;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 订单导出写入器
+ * 逐行编码写入带缓冲的输出流，缓冲区写满即发送给客户端，内存占用与导出行数无关
+ */
+public class OrderExportWriter {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "id,orderNumber,userId,productName,quantity,totalAmount,status,createdAt\n";
+    
+    private final OrderExportFormat format;
+    private final OutputStream out;
+    private final ObjectWriter jsonWriter;
+    private final StringBuilder line = new StringBuilder(256);
+    
+    public OrderExportWriter(OrderExportFormat format, OutputStream out, ObjectWriter jsonWriter) throws IOException {
+        this.format = format;
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+        this.jsonWriter = jsonWriter;
+        if (format == OrderExportFormat.CSV) {
+            this.out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    /**
+     * 写入一行
+     */
+    public void write(OrderSummary order) throws IOException {
+        if (format == OrderExportFormat.NDJSON) {
+            out.write(jsonWriter.writeValueAsBytes(order));
+            out.write('\n');
+            return;
+        }
+        line.setLength(0);
+        line.append(order.id()).append(',');
+        appendCsv(order.orderNumber()).append(',');
+        line.append(order.userId()).append(',');
+        appendCsv(order.productName()).append(',');
+        line.append(order.quantity()).append(',');
+        line.append(order.totalAmount().toPlainString()).append(',');
+        line.append(order.status()).append(',');
+        line.append(order.createdAt()).append('\n');
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 写出缓冲区中剩余的数据
+     */
+    public void finish() throws IOException {
+        out.flush();
+    }
+    
+    /**
+     * 按 RFC 4180 转义：包含逗号、引号或换行的字段加引号，引号双写
+     */
+    private StringBuilder appendCsv(String value) {
+        if (value == null) {
+            return line;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+}
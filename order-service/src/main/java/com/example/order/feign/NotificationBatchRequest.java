@@ -0,0 +1,37 @@
+package com.example.order.feign;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 通知服务批量发送请求（title/content 为内联模板，每个接收者一组变量）
+ */
+public class NotificationBatchRequest {
+    private List<String> recipients;
+    private String type;
+    private String title;
+    private String content;
+    private Map<String, Map<String, String>> variables;
+    private String idempotencyKey;
+    
+    // Constructors, Getters and Setters
+    public NotificationBatchRequest() {}
+    
+    public List<String> getRecipients() { return recipients; }
+    public void setRecipients(List<String> recipients) { this.recipients = recipients; }
+    
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+    
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+    
+    public Map<String, Map<String, String>> getVariables() { return variables; }
+    public void setVariables(Map<String, Map<String, String>> variables) { this.variables = variables; }
+    
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+}
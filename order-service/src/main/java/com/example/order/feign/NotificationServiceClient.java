@@ -0,0 +1,18 @@
+package com.example.order.feign;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.Map;
+
+/**
+ * 通知服务 Feign 客户端
+ * 不配置降级：发件箱中继依赖调用失败来保留事件并重试
+ */
+@FeignClient(name = "notification-service")
+public interface NotificationServiceClient {
+    
+    @PostMapping("/api/notifications/send/batch")
+    Map<String, Object> sendBatch(@RequestBody NotificationBatchRequest request);
+}
@@ -3,17 +3,27 @@ package com.example.order.feign;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 用户服务 Feign 客户端
  * 演示服务间调用
  */
-@FeignClient(name = "user-service", fallback = UserServiceClientFallback.class)
+@FeignClient(name = "user-service", fallbackFactory = UserServiceClientFallbackFactory.class)
 public interface UserServiceClient {
     
     @GetMapping("/api/users/{id}")
     UserDto getUserById(@PathVariable("id") Long id);
     
+    /**
+     * 按ID批量查询用户，只返回存在的用户
+     */
+    @GetMapping("/api/users/batch")
+    List<UserDto> getUsersByIds(@RequestParam("ids") Collection<Long> ids);
+    
     @GetMapping("/api/users/health")
     ServiceHealthDto getHealth();
 }
@@ -1,22 +1,43 @@
 package com.example.order.feign;
 
-import org.springframework.stereotype.Component;
+import feign.FeignException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 用户服务调用降级处理
  * 当用户服务不可用时的备用方案
  */
-@Component
 public class UserServiceClientFallback implements UserServiceClient {
     
+    // 用户名为该值的用户是降级结果，不代表真实用户
+    public static final String FALLBACK_USERNAME = "unknown";
+    
+    private final Throwable cause;
+    
+    public UserServiceClientFallback(Throwable cause) {
+        this.cause = cause;
+    }
+    
     @Override
     public UserDto getUserById(Long id) {
-        UserDto fallbackUser = new UserDto();
-        fallbackUser.setId(id);
-        fallbackUser.setUsername("unknown");
-        fallbackUser.setEmail("unknown@example.com");
-        fallbackUser.setFullName("用户服务暂时不可用");
-        return fallbackUser;
+        // 用户服务明确返回 404：用户不存在，而不是服务不可用
+        if (cause instanceof FeignException.NotFound) {
+            return null;
+        }
+        return fallbackUser(id);
+    }
+    
+    @Override
+    public List<UserDto> getUsersByIds(Collection<Long> ids) {
+        // 批量查询不会返回 404，所有ID一律返回降级用户
+        List<UserDto> fallbackUsers = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            fallbackUsers.add(fallbackUser(id));
+        }
+        return fallbackUsers;
     }
     
     @Override
@@ -27,4 +48,13 @@ public class UserServiceClientFallback implements UserServiceClient {
         health.setTimestamp(System.currentTimeMillis());
         return health;
     }
+    
+    private static UserDto fallbackUser(Long id) {
+        UserDto fallbackUser = new UserDto();
+        fallbackUser.setId(id);
+        fallbackUser.setUsername(FALLBACK_USERNAME);
+        fallbackUser.setEmail("unknown@example.com");
+        fallbackUser.setFullName("用户服务暂时不可用");
+        return fallbackUser;
+    }
 }
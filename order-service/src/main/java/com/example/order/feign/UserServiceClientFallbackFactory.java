@@ -0,0 +1,17 @@
+package com.example.order.feign;
+
+import org.springframework.cloud.openfeign.FallbackFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户服务降级工厂
+ * 把调用失败的原因传给降级实现，以便区分"用户不存在"和"用户服务不可用"
+ */
+@Component
+public class UserServiceClientFallbackFactory implements FallbackFactory<UserServiceClient> {
+    
+    @Override
+    public UserServiceClient create(Throwable cause) {
+        return new UserServiceClientFallback(cause);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.order.id;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单号生成器（Snowflake 风格）
+ * 64 位 ID = 41 位毫秒时间戳（自定义纪元起） + 10 位节点ID + 12 位毫秒内序列号，
+ * 时间戳和序列号打包在同一个 AtomicLong 中，通过 CAS 无锁递增。
+ * 同一毫秒内序列号用尽或时钟回拨时，逻辑时钟继续向前借用下一毫秒，
+ * 超前系统时钟超过容忍范围时拒绝生成，避免产生重复号
+ */
+@Component
+public class OrderNumberGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderNumberGenerator.class);
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    // 显式配置的节点ID（可放在 Nacos 配置中心），-1 表示未配置
+    @Value("${order.number.node-id:-1}")
+    private long configuredNodeId;
+
+    // Nacos 实例元数据中的节点ID
+    @Value("${spring.cloud.nacos.discovery.metadata.node-id:-1}")
+    private long metadataNodeId;
+
+    @Value("${order.number.max-clock-drift-ms:5000}")
+    private long maxClockDriftMs;
+
+    @Value("${server.port:8082}")
+    private int serverPort;
+
+    // 高位为逻辑时间戳，低 SEQUENCE_BITS 位为序列号
+    private final AtomicLong state = new AtomicLong();
+    private long nodeId;
+
+    @PostConstruct
+    public void init() {
+        long candidate = configuredNodeId >= 0 ? configuredNodeId : metadataNodeId;
+        if (candidate >= 0) {
+            if (candidate > MAX_NODE_ID) {
+                throw new IllegalStateException("节点ID超出范围 [0, " + MAX_NODE_ID + "]: " + candidate);
+            }
+            nodeId = candidate;
+        } else {
+            nodeId = deriveNodeId();
+            log.warn("未配置 order.number.node-id，根据本机地址推导节点ID: {}，多实例部署时请在 Nacos 中为每个实例配置唯一的节点ID",
+                    nodeId);
+        }
+    }
+
+    /**
+     * 生成下一个订单号
+     */
+    public String nextOrderNumber() {
+        return "ORD" + nextId();
+    }
+
+    /**
+     * 生成下一个全局唯一 ID
+     */
+    public long nextId() {
+        while (true) {
+            long now = System.currentTimeMillis() - EPOCH;
+            long previous = state.get();
+            // 进入新的毫秒则序列号归零；同一毫秒或时钟回拨时在上一个值上加一，序列号溢出自然进位到下一毫秒
+            long next = now > (previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+            long drift = (next >>> SEQUENCE_BITS) - now;
+            if (drift > maxClockDriftMs) {
+                throw new RuntimeException("系统时钟回拨超过 " + maxClockDriftMs + "ms，暂停生成订单号");
+            }
+            if (state.compareAndSet(previous, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 未配置节点ID时由本机地址和端口推导，仅作兜底
+     */
+    private long deriveNodeId() {
+        String address;
+        try {
+            address = InetAddress.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            address = "127.0.0.1";
+        }
+        return ((address + ":" + serverPort).hashCode() & Integer.MAX_VALUE) % (MAX_NODE_ID + 1);
+    }
+}
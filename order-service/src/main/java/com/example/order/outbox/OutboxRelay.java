@@ -0,0 +1,339 @@
+package com.example.order.outbox;
+
+import com.example.order.entity.OrderStatus;
+import com.example.order.entity.OutboxEvent;
+import com.example.order.feign.NotificationBatchRequest;
+import com.example.order.feign.NotificationServiceClient;
+import com.example.order.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发件箱中继
+ * 定时按写入顺序在短事务中认领一批事件，在事务外通过通知服务的批量发送接口（内联模板 + 每个接收者的变量）投递，
+ * 成功后再用一个短事务删除；失败时保留事件并指数退避，因此是至少一次投递，重复投递由幂等键去重。
+ * 被通知渠道拒绝（未发送）的接收者对应的事件释放认领，退避后以新的认领重新投递。
+ * 每批中同一用户只取最早的一条事件，其余留到下一批，保证同一订单的事件按顺序到达
+ */
+@Component
+public class OutboxRelay {
+    
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+    
+    // 模板随每个批次内联发送：通知服务的模板只保存在各实例内存中，不依赖预先注册
+    private static final String TITLE_TEMPLATE = "订单{{statusText}}";
+    private static final String CONTENT_TEMPLATE = "您的订单 {{orderNumber}}（{{productName}}）{{statusText}}";
+    private static final long WARN_INTERVAL_MS = 60_000;
+    private static final Map<OrderStatus, String> STATUS_TEXT = Map.of(
+            OrderStatus.PENDING, "已创建",
+            OrderStatus.CONFIRMED, "已确认",
+            OrderStatus.SHIPPED, "已发货",
+            OrderStatus.DELIVERED, "已送达",
+            OrderStatus.CANCELLED, "已取消");
+    
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    
+    @Autowired
+    private NotificationServiceClient notificationServiceClient;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${order.outbox.relay-enabled:true}")
+    private boolean relayEnabled;
+    
+    @Value("${order.outbox.poll-interval-ms:500}")
+    private long pollIntervalMs;
+    
+    @Value("${order.outbox.batch-size:100}")
+    private int batchSize;
+    
+    @Value("${order.outbox.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+    
+    @Value("${order.outbox.claim-lease-ms:30000}")
+    private long claimLeaseMs;
+    
+    @Value("${order.outbox.notification-type:PUSH}")
+    private String notificationType;
+    
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private TransactionTemplate transactionTemplate;
+    // 本实例的认领者标识，每次启动重新生成
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    // 以下状态仅由中继线程修改
+    private int consecutiveFailures;
+    private long nextAttemptAt;
+    private long lastWarnedAt;
+    private int suppressedWarnings;
+    
+    private volatile long pendingEvents;
+    private volatile double lagSeconds;
+    private Counter deliveredCounter;
+    private Counter failedCounter;
+    private Timer deliveryLagTimer;
+    
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("order.outbox.pending", this, relay -> relay.pendingEvents)
+                .description("待投递的订单事件数量")
+                .register(meterRegistry);
+        Gauge.builder("order.outbox.lag.seconds", this, relay -> relay.lagSeconds)
+                .description("最早一条待投递事件已等待的秒数")
+                .register(meterRegistry);
+        deliveredCounter = Counter.builder("order.outbox.delivered")
+                .description("已投递的订单事件数量")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("order.outbox.delivery.failures")
+                .description("投递失败的批次数")
+                .register(meterRegistry);
+        deliveryLagTimer = Timer.builder("order.outbox.delivery.lag")
+                .description("订单事件从写入到投递成功的耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        
+        if (relayEnabled) {
+            scheduler.scheduleWithFixedDelay(this::relay, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * 获取中继统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("relayEnabled", relayEnabled);
+        statistics.put("pendingEvents", pendingEvents);
+        statistics.put("lagSeconds", lagSeconds);
+        statistics.put("delivered", (long) deliveredCounter.count());
+        statistics.put("failedBatches", (long) failedCounter.count());
+        statistics.put("averageDeliveryLagMillis", deliveryLagTimer.mean(TimeUnit.MILLISECONDS));
+        return statistics;
+    }
+    
+    private void relay() {
+        boolean attempted = false;
+        boolean delivered = false;
+        try {
+            if (System.currentTimeMillis() >= nextAttemptAt) {
+                attempted = true;
+                // 锁定的行取满一批说明可能还有积压，继续投递
+                Claim claim;
+                do {
+                    claim = transactionTemplate.execute(status -> claimBatch());
+                    if (claim == null || claim.events().isEmpty()) {
+                        break;
+                    }
+                    deliver(claim);
+                    delivered = true;
+                } while (claim.locked() >= batchSize);
+                consecutiveFailures = 0;
+            }
+        } catch (Exception e) {
+            failedCounter.increment();
+            consecutiveFailures++;
+            long backoff = Math.min(maxBackoffMs, pollIntervalMs << Math.min(consecutiveFailures, 16));
+            nextAttemptAt = System.currentTimeMillis() + backoff;
+            warnDeliveryFailure(backoff, e);
+        }
+        // 只在有投递（成功或失败）时重新计数，空闲轮询不做全表 count
+        updateLag(attempted && (delivered || consecutiveFailures > 0));
+    }
+    
+    /**
+     * 认领事务：锁定最早的一批事件，标记认领者和租约后立即提交，不在事务中调用通知服务。
+     * 自己未完成的认领或租约已过期的认领整批重新认领，保持原幂等键，通知服务据此去重；
+     * 否则为每个用户认领最早一条未认领的事件，仍有事件被其他实例认领中的用户本批跳过，保证按序投递
+     */
+    private Claim claimBatch() {
+        List<OutboxEvent> events = outboxEventRepository.lockOldest(PageRequest.of(0, batchSize));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plus(Duration.ofMillis(claimLeaseMs));
+        
+        for (OutboxEvent event : events) {
+            if (event.getClaimKey() != null
+                    && (instanceId.equals(event.getClaimedBy()) || event.getClaimedUntil().isBefore(now))) {
+                String claimKey = event.getClaimKey();
+                List<OutboxEvent> claimed = new ArrayList<>();
+                for (OutboxEvent candidate : events) {
+                    if (claimKey.equals(candidate.getClaimKey())) {
+                        candidate.claim(claimKey, instanceId, leaseUntil);
+                        claimed.add(candidate);
+                    }
+                }
+                return new Claim(claimKey, claimed, events.size());
+            }
+        }
+        
+        Set<Long> claimedUsers = new HashSet<>();
+        Map<Long, OutboxEvent> selected = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            if (event.getClaimKey() != null) {
+                claimedUsers.add(event.getUserId());
+            } else if (!claimedUsers.contains(event.getUserId())) {
+                selected.putIfAbsent(event.getUserId(), event);
+            }
+        }
+        if (selected.isEmpty()) {
+            return new Claim(null, List.of(), events.size());
+        }
+        
+        // 认领键由事件ID确定，作为批量发送的幂等键
+        StringBuilder ids = new StringBuilder();
+        for (OutboxEvent event : selected.values()) {
+            ids.append(event.getId()).append(',');
+        }
+        String claimKey = UUID.nameUUIDFromBytes(ids.toString().getBytes(StandardCharsets.UTF_8)).toString();
+        for (OutboxEvent event : selected.values()) {
+            event.claim(claimKey, instanceId, leaseUntil);
+        }
+        return new Claim(claimKey, new ArrayList<>(selected.values()), events.size());
+    }
+    
+    /**
+     * 在事务外投递一批已认领的事件（每个用户一条），成功后在另一个短事务中删除已发送的事件；
+     * 被渠道拒绝的接收者对应的事件释放认领留待重投，并以异常结束本轮以便退避
+     */
+    private void deliver(Claim claim) {
+        Map<String, Map<String, String>> variables = new HashMap<>();
+        List<String> recipients = new ArrayList<>(claim.events().size());
+        for (OutboxEvent event : claim.events()) {
+            String recipient = String.valueOf(event.getUserId());
+            Map<String, String> values = new HashMap<>();
+            values.put("orderNumber", event.getOrderNumber());
+            values.put("productName", event.getProductName());
+            values.put("statusText", STATUS_TEXT.get(event.getStatus()));
+            variables.put(recipient, values);
+            recipients.add(recipient);
+        }
+        NotificationBatchRequest request = new NotificationBatchRequest();
+        request.setRecipients(recipients);
+        request.setType(notificationType);
+        request.setTitle(TITLE_TEMPLATE);
+        request.setContent(CONTENT_TEMPLATE);
+        request.setVariables(variables);
+        request.setIdempotencyKey(claim.key());
+        
+        Set<String> rejected = rejectedRecipients(notificationServiceClient.sendBatch(request));
+        
+        List<Long> rejectedIds = new ArrayList<>();
+        List<OutboxEvent> delivered = new ArrayList<>(claim.events().size());
+        for (OutboxEvent event : claim.events()) {
+            if (rejected.contains(String.valueOf(event.getUserId()))) {
+                rejectedIds.add(event.getId());
+            } else {
+                delivered.add(event);
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!rejectedIds.isEmpty()) {
+                outboxEventRepository.releaseClaims(rejectedIds);
+            }
+            outboxEventRepository.deleteByClaimKey(claim.key());
+        });
+        LocalDateTime now = LocalDateTime.now();
+        for (OutboxEvent event : delivered) {
+            deliveryLagTimer.record(Duration.between(event.getCreatedAt(), now));
+        }
+        deliveredCounter.increment(delivered.size());
+        if (!rejectedIds.isEmpty()) {
+            throw new RuntimeException("通知渠道繁忙，" + rejectedIds.size() + " 个订单事件稍后重新投递");
+        }
+    }
+    
+    /**
+     * 批量发送响应中被渠道拒绝（未发送）的接收者
+     */
+    private static Set<String> rejectedRecipients(Map<String, Object> response) {
+        if (response == null || !(response.get("rejectedRecipients") instanceof List<?> recipients)) {
+            return Set.of();
+        }
+        Set<String> rejected = new HashSet<>();
+        for (Object recipient : recipients) {
+            rejected.add(String.valueOf(recipient));
+        }
+        return rejected;
+    }
+    
+    /**
+     * 投递失败告警限流：每个时间窗口最多记录一次，其余只计数
+     */
+    private void warnDeliveryFailure(long backoff, Exception e) {
+        long now = System.currentTimeMillis();
+        if (now - lastWarnedAt < WARN_INTERVAL_MS) {
+            suppressedWarnings++;
+            return;
+        }
+        log.warn("订单事件投递失败，{}ms 后重试（上次告警后另有 {} 次失败）: {}", backoff, suppressedWarnings, e.getMessage());
+        lastWarnedAt = now;
+        suppressedWarnings = 0;
+    }
+    
+    /**
+     * 延迟取最早一条事件的写入时间（主键顺序的第一行）；待投递数量只在 refreshCount 时重新计算
+     */
+    private void updateLag(boolean refreshCount) {
+        try {
+            List<LocalDateTime> oldest = outboxEventRepository.findCreatedAtInOrder(PageRequest.of(0, 1));
+            if (oldest.isEmpty()) {
+                pendingEvents = 0;
+                lagSeconds = 0;
+                return;
+            }
+            lagSeconds = Duration.between(oldest.get(0), LocalDateTime.now()).toMillis() / 1000.0;
+            if (refreshCount) {
+                pendingEvents = outboxEventRepository.count();
+            }
+        } catch (Exception e) {
+            // 统计失败不影响投递
+        }
+    }
+    
+    /**
+     * 一次认领：认领键、认领到的事件（每个用户一条）以及本次锁定的行数
+     */
+    private record Claim(String key, List<OutboxEvent> events, int locked) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.order.outbox;
+
+import com.example.order.entity.Order;
+import com.example.order.entity.OrderStatus;
+import com.example.order.entity.OutboxEvent;
+import com.example.order.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 发件箱写入
+ * 只能在订单变更所在的事务中调用，事件与订单一起提交或回滚
+ */
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxWriter {
+    
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+    public static final String ORDER_STATUS_CHANGED = "ORDER_STATUS_CHANGED";
+    
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    
+    @Value("${order.outbox.enabled:true}")
+    private boolean enabled;
+    
+    /**
+     * 记录订单创建事件
+     */
+    public void orderCreated(Order order) {
+        if (enabled) {
+            outboxEventRepository.save(new OutboxEvent(ORDER_CREATED, order.getId(), order.getOrderNumber(),
+                    order.getUserId(), order.getProductName(), order.getStatus()));
+        }
+    }
+    
+    /**
+     * 记录订单状态变更事件
+     */
+    public void statusChanged(Order order) {
+        statusChanged(order.getId(), order.getOrderNumber(), order.getUserId(), order.getProductName(),
+                order.getStatus());
+    }
+    
+    /**
+     * 记录订单状态变更事件（批量变更时订单未加载为实体）
+     */
+    public void statusChanged(Long orderId, String orderNumber, Long userId, String productName, OrderStatus status) {
+        if (enabled) {
+            outboxEventRepository.save(new OutboxEvent(ORDER_STATUS_CHANGED, orderId, orderNumber,
+                    userId, productName, status));
+        }
+    }
+}
@@ -1,14 +1,26 @@
 package com.example.order.repository;
 
+import com.example.order.dto.OrderSummary;
 import com.example.order.entity.Order;
 import com.example.order.entity.OrderStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 订单数据访问层
@@ -36,12 +48,70 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      */
     List<Order> findByUserIdAndStatus(Long userId, OrderStatus status);
     
+    /**
+     * 按ID键集分页：查询 ID 大于游标的订单，页大小由 Pageable 限定（不执行 count 查询）
+     */
+    List<OrderSummary> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+    
+    List<OrderSummary> findByStatusAndIdGreaterThanOrderByIdAsc(OrderStatus status, Long afterId, Pageable pageable);
+    
+    List<OrderSummary> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long afterId, Pageable pageable);
+    
+    List<OrderSummary> findByUserIdAndStatusAndIdGreaterThanOrderByIdAsc(Long userId, OrderStatus status,
+                                                                         Long afterId, Pageable pageable);
+    
+    /**
+     * 读取全部订单的 [id, productName]，用于重建商品名称索引（须在事务内消费并关闭）
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o.id, o.productName FROM Order o")
+    Stream<Object[]> streamProductNames();
+    
+    /**
+     * 查询指定时间之后创建的订单的 [id, productName]
+     */
+    @Query("SELECT o.id, o.productName FROM Order o WHERE o.createdAt >= :since")
+    List<Object[]> findProductNamesCreatedSince(@Param("since") LocalDateTime since);
+    
     /**
      * 计算总金额
      */
     @Query("SELECT SUM(o.totalAmount) FROM Order o")
     BigDecimal sumTotalAmount();
     
+    /**
+     * 锁定指定ID中处于 status 状态的订单，
+     * 只返回 [id, totalAmount, orderNumber, userId, productName]，不加载实体
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o.id, o.totalAmount, o.orderNumber, o.userId, o.productName FROM Order o "
+            + "WHERE o.id IN :ids AND o.status = :status")
+    List<Object[]> lockForTransition(@Param("ids") Collection<Long> ids, @Param("status") OrderStatus status);
+    
+    /**
+     * 批量变更状态（单条 UPDATE 语句，不加载实体），同时递增版本号
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.version = o.version + 1, o.updatedAt = :now "
+            + "WHERE o.id IN :ids AND o.status = :from")
+    int transitionStatus(@Param("ids") Collection<Long> ids, @Param("from") OrderStatus from,
+                         @Param("to") OrderStatus to, @Param("now") LocalDateTime now);
+    
+    /**
+     * 按状态汇总订单数和金额：[status, count, sum]
+     */
+    @Query("SELECT o.status, COUNT(o), SUM(o.totalAmount) FROM Order o GROUP BY o.status")
+    List<Object[]> aggregateByStatus();
+    
+    /**
+     * 按用户汇总订单数和金额：[userId, count, sum]
+     */
+    @Query("SELECT o.userId, COUNT(o), SUM(o.totalAmount) FROM Order o GROUP BY o.userId")
+    List<Object[]> aggregateByUser();
+    
     /**
      * 根据用户ID计算总金额
      */
@@ -0,0 +1,50 @@
+package com.example.order.repository;
+
+import com.example.order.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单事件发件箱数据访问层
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    /**
+     * 按写入顺序锁定最早的一批事件（包括已被认领的），仅用于短暂的认领事务；
+     * 多个中继实例会在此串行，保证同一订单的事件按顺序投递
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM OutboxEvent e ORDER BY e.id")
+    List<OutboxEvent> lockOldest(Pageable pageable);
+    
+    /**
+     * 删除同一次认领中已投递的事件
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.claimKey = :claimKey")
+    int deleteByClaimKey(@Param("claimKey") String claimKey);
+    
+    /**
+     * 释放认领：事件回到未认领状态，之后以新的认领（新的幂等键）重新投递
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimKey = null, e.claimedBy = null, e.claimedUntil = null "
+            + "WHERE e.id IN :ids")
+    int releaseClaims(@Param("ids") List<Long> ids);
+    
+    /**
+     * 按写入顺序读取事件的写入时间（取第一条即最早一条待投递事件，走主键索引）
+     */
+    @Query("SELECT e.createdAt FROM OutboxEvent e ORDER BY e.id")
+    List<LocalDateTime> findCreatedAtInOrder(Pageable pageable);
+}
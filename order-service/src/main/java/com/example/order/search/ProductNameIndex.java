@@ -0,0 +1,360 @@
+package com.example.order.search;
+
+import com.example.order.entity.Order;
+import com.example.order.repository.OrderRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * 商品名称倒排索引（进程内）
+ * 词项 -> 按订单ID升序排列的倒排表。英文和数字按单词切分并转小写，汉字按单字切分。
+ * 启动时从订单表重建；本实例的创建和删除在事务提交后增量更新；
+ * 其他实例写入的订单由定时追赶按创建时间补入（重复加入是幂等的）。
+ * 索引只用于产生候选ID，最终结果以数据库为准，已被其他实例删除的订单不会返回
+ */
+@Component
+public class ProductNameIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(ProductNameIndex.class);
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${order.search.index.catch-up-interval-ms:5000}")
+    private long catchUpIntervalMs;
+    
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long postingCount;
+    
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private LocalDateTime lastCatchUp;
+    
+    @PostConstruct
+    public void init() {
+        lastCatchUp = LocalDateTime.now();
+        rebuild();
+        Gauge.builder("order.search.index.terms", this, index -> index.size()[0])
+                .description("商品名称倒排索引的词项数")
+                .register(meterRegistry);
+        Gauge.builder("order.search.index.postings", this, index -> index.size()[1])
+                .description("商品名称倒排索引的倒排记录数")
+                .register(meterRegistry);
+        if (catchUpIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::catchUp, catchUpIntervalMs, catchUpIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * 从订单表全量重建，按 fetch size 分批读取，不加载实体
+     */
+    public void rebuild() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        template.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = orderRepository.streamProductNames()) {
+                lock.writeLock().lock();
+                try {
+                    postings.clear();
+                    postingCount = 0;
+                    rows.forEach(row -> add((Long) row[0], (String) row[1]));
+                    postings.values().forEach(Postings::trim);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        });
+    }
+    
+    /**
+     * 记录新建订单（事务提交后生效）
+     */
+    public void orderCreated(Order order) {
+        pending().add(order.getId(), order.getProductName(), true);
+    }
+    
+    /**
+     * 记录删除订单（事务提交后生效）
+     */
+    public void orderDeleted(Order order) {
+        pending().add(order.getId(), order.getProductName(), false);
+    }
+    
+    /**
+     * 将查询文本切分为词项
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        StringBuilder word = new StringBuilder();
+        text.toLowerCase().codePoints().forEach(codePoint -> {
+            if (Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN) {
+                flushWord(word, terms);
+                terms.add(new String(Character.toChars(codePoint)));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                word.appendCodePoint(codePoint);
+            } else {
+                flushWord(word, terms);
+            }
+        });
+        flushWord(word, terms);
+        return terms;
+    }
+    
+    /**
+     * 返回同时包含所有词项、且ID大于 afterId 的订单ID（升序，最多 max 个）
+     * 遍历最短的倒排表，在其余倒排表中二分查找
+     */
+    public long[] candidates(Set<String> terms, long afterId, int max) {
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    return new long[0];
+                }
+                lists.add(list);
+            }
+            if (lists.isEmpty()) {
+                return new long[0];
+            }
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+            Postings shortest = lists.get(0);
+            
+            long[] result = new long[Math.min(max, shortest.size)];
+            int count = 0;
+            for (int i = shortest.upperBound(afterId); i < shortest.size && count < result.length; i++) {
+                long id = shortest.ids[i];
+                boolean all = true;
+                for (int j = 1; j < lists.size() && all; j++) {
+                    all = lists.get(j).contains(id);
+                }
+                if (all) {
+                    result[count++] = id;
+                }
+            }
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 追赶其他实例写入的订单：重新读取上次追赶之后（含一个间隔的重叠）创建的订单
+     */
+    private void catchUp() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> rows = orderRepository.findProductNamesCreatedSince(
+                    lastCatchUp.minus(Duration.ofMillis(catchUpIntervalMs)));
+            lock.writeLock().lock();
+            try {
+                for (Object[] row : rows) {
+                    add((Long) row[0], (String) row[1]);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastCatchUp = now;
+        } catch (Exception e) {
+            log.warn("商品名称索引追赶失败: {}", e.getMessage());
+        }
+    }
+    
+    private long[] size() {
+        lock.readLock().lock();
+        try {
+            return new long[]{postings.size(), postingCount};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // 以下两个方法须持有写锁
+    private void add(long id, String productName) {
+        for (String term : tokenize(productName)) {
+            if (postings.computeIfAbsent(term, t -> new Postings()).add(id)) {
+                postingCount++;
+            }
+        }
+    }
+    
+    private void remove(long id, String productName) {
+        for (String term : tokenize(productName)) {
+            Postings list = postings.get(term);
+            if (list != null && list.remove(id)) {
+                postingCount--;
+                if (list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+    
+    private static void flushWord(StringBuilder word, Set<String> terms) {
+        if (word.length() > 0) {
+            terms.add(word.toString());
+            word.setLength(0);
+        }
+    }
+    
+    /**
+     * 获取当前事务的待提交变更；不在事务中时立即生效
+     */
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Pending(true);
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending created = new Pending(false);
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ProductNameIndex.this);
+                    if (status == STATUS_COMMITTED) {
+                        created.apply();
+                    }
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+    
+    /**
+     * 一次事务内累积的索引变更
+     */
+    private final class Pending {
+        private final boolean immediate;
+        private final List<Change> changes = new ArrayList<>();
+        
+        private Pending(boolean immediate) {
+            this.immediate = immediate;
+        }
+        
+        private void add(Long id, String productName, boolean created) {
+            changes.add(new Change(id, productName, created));
+            if (immediate) {
+                apply();
+            }
+        }
+        
+        private void apply() {
+            lock.writeLock().lock();
+            try {
+                for (Change change : changes) {
+                    if (change.created()) {
+                        ProductNameIndex.this.add(change.id(), change.productName());
+                    } else {
+                        ProductNameIndex.this.remove(change.id(), change.productName());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+    
+    private record Change(long id, String productName, boolean created) {
+    }
+    
+    /**
+     * 升序排列的订单ID数组；订单ID基本递增，绝大多数加入是追加
+     */
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+        
+        private boolean add(long id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int index = Arrays.binarySearch(ids, 0, size, id);
+                if (index >= 0) {
+                    return false;
+                }
+                insert(-index - 1, id);
+                return true;
+            }
+            insert(size, id);
+            return true;
+        }
+        
+        private void insert(int index, long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+        
+        private boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+        
+        private boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+        
+        /**
+         * 第一个大于 id 的位置
+         */
+        private int upperBound(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+        
+        private void trim() {
+            ids = Arrays.copyOf(ids, size);
+        }
+    }
+}
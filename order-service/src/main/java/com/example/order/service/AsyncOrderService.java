@@ -0,0 +1,57 @@
+package com.example.order.service;
+
+import com.example.order.entity.Order;
+import com.example.order.verify.HedgedUserVerifier;
+import com.example.order.verify.UserVerification;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 异步订单创建
+ * 用户验证以非阻塞方式进行（带延迟预算和对冲请求），验证完成后在虚拟线程中写库，
+ * 请求线程不会因用户服务变慢而被占用
+ */
+@Service
+public class AsyncOrderService {
+    
+    private static final Logger log = LoggerFactory.getLogger(AsyncOrderService.class);
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private HedgedUserVerifier userVerifier;
+    
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    /**
+     * 异步创建订单
+     * 用户明确不存在时以异常结束；用户服务不可用或超出延迟预算时记录警告并继续创建
+     */
+    public CompletableFuture<Order> createOrder(Long userId, String productName, Integer quantity,
+                                                BigDecimal unitPrice) {
+        return userVerifier.verify(userId)
+                .thenApplyAsync(verification -> {
+                    if (verification.outcome() == UserVerification.Outcome.NOT_FOUND) {
+                        throw new RuntimeException("用户不存在: " + userId);
+                    }
+                    if (verification.outcome() == UserVerification.Outcome.UNVERIFIED) {
+                        log.warn("无法在延迟预算内验证用户信息，继续创建订单: {}", userId);
+                    }
+                    return orderService.createVerifiedOrder(userId, productName, quantity, unitPrice);
+                }, executor);
+    }
+}
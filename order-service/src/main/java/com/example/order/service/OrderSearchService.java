@@ -0,0 +1,171 @@
+package com.example.order.service;
+
+import com.example.order.dto.OrderPage;
+import com.example.order.dto.OrderSearchCriteria;
+import com.example.order.dto.OrderSummary;
+import com.example.order.search.ProductNameIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 订单搜索业务逻辑
+ * 全文检索先由商品名称倒排索引产生候选ID，再按ID分块回表并应用其余过滤条件；
+ * 前缀和范围条件直接由数据库索引（product_name、created_at、total_amount）过滤。
+ * 只拼接实际指定的条件，避免 "参数为空或匹配" 这类写法使数据库无法使用索引
+ */
+@Service
+@Transactional(readOnly = true)
+public class OrderSearchService {
+    
+    // 每次从倒排索引取出的候选ID数（回表 IN 列表长度）：从 MIN 开始，
+    // 结果仍未凑满时逐块翻倍，其余条件选择性高时减少回表次数
+    private static final int MIN_CANDIDATE_CHUNK = 500;
+    private static final int MAX_CANDIDATE_CHUNK = 16000;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private ProductNameIndex productNameIndex;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${order.query.max-page-size:500}")
+    private int maxPageSize;
+    
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    
+    /**
+     * 搜索订单，按ID升序分页，after 为上一页返回的 nextCursor
+     */
+    public OrderPage search(OrderSearchCriteria criteria, Long afterId, int limit) {
+        validate(criteria);
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        long cursor = afterId != null ? afterId : 0L;
+        
+        String mode = criteria.query() != null ? "fulltext" : criteria.prefix() != null ? "prefix" : "range";
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<OrderSummary> orders = criteria.query() != null
+                ? searchFullText(criteria, cursor, pageSize + 1)
+                : query(criteria, null, cursor, pageSize + 1);
+        sample.stop(timer(mode));
+        
+        if (orders.size() <= pageSize) {
+            return new OrderPage(orders, null);
+        }
+        List<OrderSummary> content = orders.subList(0, pageSize);
+        return new OrderPage(content, content.get(pageSize - 1).id());
+    }
+    
+    /**
+     * 全文检索：逐块取候选ID回表，直到凑满 max 条或候选耗尽
+     * 汉字按单字索引，回表后再校验关键词在商品名称中连续出现
+     */
+    private List<OrderSummary> searchFullText(OrderSearchCriteria criteria, long afterId, int max) {
+        Set<String> terms = ProductNameIndex.tokenize(criteria.query());
+        String[] phrases = criteria.query().toLowerCase().trim().split("\\s+");
+        List<OrderSummary> result = new ArrayList<>();
+        long cursor = afterId;
+        int chunk = MIN_CANDIDATE_CHUNK;
+        while (result.size() < max) {
+            long[] candidates = productNameIndex.candidates(terms, cursor, chunk);
+            if (candidates.length == 0) {
+                break;
+            }
+            int remaining = max - result.size();
+            List<OrderSummary> rows = query(criteria, candidates, cursor, remaining);
+            for (OrderSummary row : rows) {
+                String name = row.productName().toLowerCase();
+                if (Arrays.stream(phrases).allMatch(name::contains)) {
+                    result.add(row);
+                }
+            }
+            // 回表结果被截断时从最后一行继续，否则本块候选已全部处理
+            cursor = rows.size() == remaining ? rows.get(rows.size() - 1).id() : candidates[candidates.length - 1];
+            chunk = Math.min(chunk * 2, MAX_CANDIDATE_CHUNK);
+        }
+        return result;
+    }
+    
+    private List<OrderSummary> query(OrderSearchCriteria criteria, long[] ids, long afterId, int max) {
+        StringBuilder jpql = new StringBuilder("SELECT new com.example.order.dto.OrderSummary(o.id, o.orderNumber, "
+                + "o.userId, o.productName, o.quantity, o.totalAmount, o.status, o.createdAt) "
+                + "FROM Order o WHERE o.id > :after");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("after", afterId);
+        if (ids != null) {
+            jpql.append(" AND o.id IN :ids");
+            parameters.put("ids", Arrays.stream(ids).boxed().toList());
+        }
+        if (criteria.prefix() != null) {
+            jpql.append(" AND o.productName LIKE :prefix ESCAPE '\\'");
+            parameters.put("prefix", escapeLike(criteria.prefix()) + "%");
+        }
+        if (criteria.from() != null) {
+            jpql.append(" AND o.createdAt >= :from");
+            parameters.put("from", criteria.from());
+        }
+        if (criteria.to() != null) {
+            jpql.append(" AND o.createdAt < :to");
+            parameters.put("to", criteria.to());
+        }
+        if (criteria.minAmount() != null) {
+            jpql.append(" AND o.totalAmount >= :minAmount");
+            parameters.put("minAmount", criteria.minAmount());
+        }
+        if (criteria.maxAmount() != null) {
+            jpql.append(" AND o.totalAmount <= :maxAmount");
+            parameters.put("maxAmount", criteria.maxAmount());
+        }
+        if (criteria.status() != null) {
+            jpql.append(" AND o.status = :status");
+            parameters.put("status", criteria.status());
+        }
+        jpql.append(" ORDER BY o.id");
+        
+        TypedQuery<OrderSummary> query = entityManager.createQuery(jpql.toString(), OrderSummary.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(max).getResultList();
+    }
+    
+    private void validate(OrderSearchCriteria criteria) {
+        if (criteria.query() != null && ProductNameIndex.tokenize(criteria.query()).isEmpty()) {
+            throw new RuntimeException("搜索关键词无效: " + criteria.query());
+        }
+        if (criteria.from() != null && criteria.to() != null && !criteria.from().isBefore(criteria.to())) {
+            throw new RuntimeException("时间范围无效: from 必须早于 to");
+        }
+        if (criteria.minAmount() != null && criteria.maxAmount() != null
+                && criteria.minAmount().compareTo(criteria.maxAmount()) > 0) {
+            throw new RuntimeException("金额范围无效: minAmount 不能大于 maxAmount");
+        }
+    }
+    
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    private Timer timer(String mode) {
+        return timers.computeIfAbsent(mode, m -> Timer.builder("order.search")
+                .tag("mode", m)
+                .description("订单搜索耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+    }
+}
@@ -1,18 +1,44 @@
 package com.example.order.service;
 
+import com.example.order.aggregate.OrderAggregates;
+import com.example.order.cache.UserValidationCache;
+import com.example.order.dto.OrderPage;
+import com.example.order.dto.OrderSummary;
 import com.example.order.entity.Order;
 import com.example.order.entity.OrderStatus;
-import com.example.order.feign.UserServiceClient;
+import com.example.order.feign.UserDto;
+import com.example.order.feign.UserServiceClientFallback;
+import com.example.order.id.OrderNumberGenerator;
+import com.example.order.outbox.OutboxWriter;
 import com.example.order.repository.OrderRepository;
+import com.example.order.search.ProductNameIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * 订单业务服务类
@@ -21,36 +47,119 @@ import java.util.Optional;
 @Transactional
 public class OrderService {
     
+    private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+    
     @Autowired
     private OrderRepository orderRepository;
     
     @Autowired
-    private UserServiceClient userServiceClient;
+    private UserValidationCache userValidationCache;
+    
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+    
+    @Autowired
+    private OrderAggregates orderAggregates;
+    
+    @Autowired
+    private OutboxWriter outboxWriter;
+    
+    @Autowired
+    private ProductNameIndex productNameIndex;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${order.batch.max-size:1000}")
+    private int batchMaxSize;
+    
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+    
+    @Value("${order.query.max-page-size:500}")
+    private int maxPageSize;
+    
+    @Value("${order.status.bulk-max-size:10000}")
+    private int bulkMaxSize;
+    
+    @Value("${order.status.bulk-chunk-size:1000}")
+    private int bulkChunkSize;
     
     /**
-     * 获取所有订单
+     * 分页获取订单（按ID键集分页，可按状态过滤）
      */
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    @Transactional(readOnly = true)
+    public OrderPage getOrders(Long afterId, int limit, String status) {
+        return getOrders(null, afterId, limit, status);
     }
     
     /**
      * 根据ID获取订单
      */
+    @Transactional(readOnly = true)
     public Optional<Order> getOrderById(Long id) {
         return orderRepository.findById(id);
     }
     
     /**
-     * 根据用户ID获取订单列表
+     * 分页获取用户的订单（按ID键集分页，可按状态过滤）
+     */
+    @Transactional(readOnly = true)
+    public OrderPage getOrdersByUserId(Long userId, Long afterId, int limit, String status) {
+        return getOrders(userId, afterId, limit, status);
+    }
+    
+    /**
+     * 流式导出订单：从数据库游标逐行读取只读投影交给 sink，不在内存中累积结果；
+     * sink 返回 false（例如客户端已断开）时停止读取，关闭游标并取消查询。返回已读取的行数
      */
-    public List<Order> getOrdersByUserId(Long userId) {
-        return orderRepository.findByUserId(userId);
+    @Transactional(readOnly = true)
+    public long exportOrders(LocalDateTime from, LocalDateTime to, OrderStatus status,
+                             Predicate<OrderSummary> sink) {
+        // 只拼接实际指定的条件，与搜索一致，避免 "参数为空或匹配" 的写法使数据库无法使用 created_at 索引
+        StringBuilder jpql = new StringBuilder("SELECT new com.example.order.dto.OrderSummary(o.id, o.orderNumber, "
+                + "o.userId, o.productName, o.quantity, o.totalAmount, o.status, o.createdAt) FROM Order o");
+        Map<String, Object> parameters = new HashMap<>();
+        String separator = " WHERE ";
+        if (from != null) {
+            jpql.append(separator).append("o.createdAt >= :from");
+            parameters.put("from", from);
+            separator = " AND ";
+        }
+        if (to != null) {
+            jpql.append(separator).append("o.createdAt < :to");
+            parameters.put("to", to);
+            separator = " AND ";
+        }
+        if (status != null) {
+            jpql.append(separator).append("o.status = :status");
+            parameters.put("status", status);
+        }
+        jpql.append(" ORDER BY o.id");
+        
+        // JDBC 按 fetch size 分批拉取，投影不进入持久化上下文
+        TypedQuery<OrderSummary> query = entityManager.createQuery(jpql.toString(), OrderSummary.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        parameters.forEach(query::setParameter);
+        
+        long rows = 0;
+        try (Stream<OrderSummary> stream = query.getResultStream()) {
+            Iterator<OrderSummary> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                rows++;
+                if (!sink.test(iterator.next())) {
+                    break;
+                }
+            }
+        }
+        return rows;
     }
     
     /**
      * 根据订单号获取订单
      */
+    @Transactional(readOnly = true)
     public Optional<Order> getOrderByOrderNumber(String orderNumber) {
         return orderRepository.findByOrderNumber(orderNumber);
     }
@@ -59,35 +168,184 @@ public class OrderService {
      * 创建订单
      */
     public Order createOrder(Long userId, String productName, Integer quantity, BigDecimal unitPrice) {
-        // 验证用户是否存在（通过 Feign 调用用户服务）
+        // 验证用户是否存在（优先读本地缓存，未命中时通过 Feign 调用用户服务）
         try {
-            var user = userServiceClient.getUserById(userId);
-            if (user == null || "unknown".equals(user.getUsername())) {
+            UserDto user = userValidationCache.getUser(userId).orElse(null);
+            if (user == null || UserServiceClientFallback.FALLBACK_USERNAME.equals(user.getUsername())) {
                 throw new RuntimeException("用户不存在或用户服务不可用: " + userId);
             }
         } catch (Exception e) {
             // 如果用户服务调用失败，记录日志但继续处理（演示容错机制）
-            System.out.println("警告：无法验证用户信息，用户服务可能不可用: " + e.getMessage());
+            log.warn("无法验证用户信息，用户服务可能不可用: {}", e.getMessage());
         }
         
-        String orderNumber = generateOrderNumber();
+        return createVerifiedOrder(userId, productName, quantity, unitPrice);
+    }
+    
+    /**
+     * 创建订单（用户已由调用方验证）
+     */
+    public Order createVerifiedOrder(Long userId, String productName, Integer quantity, BigDecimal unitPrice) {
+        String orderNumber = orderNumberGenerator.nextOrderNumber();
         Order order = new Order(orderNumber, userId, productName, quantity, unitPrice);
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+        orderAggregates.orderCreated(saved);
+        productNameIndex.orderCreated(saved);
+        outboxWriter.orderCreated(saved);
+        return saved;
+    }
+    
+    /**
+     * 键集分页查询：多取一条判断是否还有下一页
+     */
+    private OrderPage getOrders(Long userId, Long afterId, int limit, String status) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        long cursor = afterId != null ? afterId : 0L;
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        OrderStatus orderStatus = OrderStatus.parse(status);
+        
+        List<OrderSummary> orders;
+        if (userId == null) {
+            orders = orderStatus == null
+                    ? orderRepository.findByIdGreaterThanOrderByIdAsc(cursor, page)
+                    : orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc(orderStatus, cursor, page);
+        } else {
+            orders = orderStatus == null
+                    ? orderRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, cursor, page)
+                    : orderRepository.findByUserIdAndStatusAndIdGreaterThanOrderByIdAsc(userId, orderStatus, cursor, page);
+        }
+        
+        if (orders.size() <= pageSize) {
+            return new OrderPage(orders, null);
+        }
+        List<OrderSummary> content = orders.subList(0, pageSize);
+        return new OrderPage(content, content.get(pageSize - 1).id());
+    }
+    
+    /**
+     * 批量创建订单
+     * 引用的用户按去重后的 ID 各验证一次；字段不合法的订单单独返回失败，其余订单按 JDBC 批次插入，
+     * 每个批次 flush 后清空持久化上下文，避免大批量时一级缓存无限增长
+     */
+    public List<BatchItemResult> createOrders(List<OrderItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("订单列表不能为空");
+        }
+        if (items.size() > batchMaxSize) {
+            throw new RuntimeException("单次最多创建 " + batchMaxSize + " 个订单");
+        }
+        
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (OrderItem item : items) {
+            if (item != null && item.getUserId() != null) {
+                userIds.add(item.getUserId());
+            }
+        }
+        verifyUsers(userIds);
+        
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        List<Order> pending = new ArrayList<>(jdbcBatchSize);
+        List<BatchItemResult> pendingResults = new ArrayList<>(jdbcBatchSize);
+        for (int i = 0; i < items.size(); i++) {
+            OrderItem item = items.get(i);
+            String error = validate(item);
+            if (error != null) {
+                results.add(BatchItemResult.failure(i, error));
+                continue;
+            }
+            Order order = new Order(orderNumberGenerator.nextOrderNumber(), item.getUserId(),
+                    item.getProductName(), item.getQuantity(), item.getUnitPrice());
+            BatchItemResult result = new BatchItemResult(i);
+            pending.add(order);
+            pendingResults.add(result);
+            results.add(result);
+            if (pending.size() >= jdbcBatchSize) {
+                flushBatch(pending, pendingResults);
+            }
+        }
+        flushBatch(pending, pendingResults);
+        return results;
+    }
+    
+    /**
+     * 按去重后的用户ID验证用户，与单个创建一致：无法验证时记录警告并继续
+     */
+    private void verifyUsers(Set<Long> userIds) {
+        try {
+            Map<Long, Optional<UserDto>> users = userValidationCache.getUsers(userIds);
+            List<Long> unverified = new ArrayList<>();
+            for (Long userId : userIds) {
+                Optional<UserDto> user = users.get(userId);
+                if (user == null || user.isEmpty()) {
+                    unverified.add(userId);
+                }
+            }
+            if (!unverified.isEmpty()) {
+                log.warn("无法验证 {} 个用户信息，用户服务可能不可用: {}", unverified.size(), unverified);
+            }
+        } catch (Exception e) {
+            log.warn("无法验证 {} 个用户信息，用户服务可能不可用: {}", userIds.size(), e.getMessage());
+        }
+    }
+    
+    private String validate(OrderItem item) {
+        if (item == null) {
+            return "订单不能为空";
+        }
+        if (item.getUserId() == null) {
+            return "用户ID不能为空";
+        }
+        if (item.getProductName() == null || item.getProductName().isBlank()) {
+            return "商品名称不能为空";
+        }
+        if (item.getQuantity() == null || item.getQuantity() <= 0) {
+            return "商品数量必须大于0";
+        }
+        if (item.getUnitPrice() == null || item.getUnitPrice().signum() < 0) {
+            return "商品单价不能为负数";
+        }
+        return null;
+    }
+    
+    private void flushBatch(List<Order> orders, List<BatchItemResult> results) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        for (Order order : orders) {
+            entityManager.persist(order);
+        }
+        // 订单ID在 persist 时已由序列分配，发件箱事件与订单在同一次 flush 中批量插入
+        for (Order order : orders) {
+            outboxWriter.orderCreated(order);
+        }
+        entityManager.flush();
+        for (int i = 0; i < orders.size(); i++) {
+            orderAggregates.orderCreated(orders.get(i));
+            productNameIndex.orderCreated(orders.get(i));
+            results.get(i).succeed(orders.get(i));
+        }
+        entityManager.clear();
+        orders.clear();
+        results.clear();
     }
     
     /**
      * 更新订单状态
      */
     public Optional<Order> updateOrderStatus(Long id, String status) {
+        return updateOrderStatus(id, status, null);
+    }
+    
+    /**
+     * 更新订单状态，expectedVersion 不为空时要求与当前版本一致
+     */
+    public Optional<Order> updateOrderStatus(Long id, String status, Long expectedVersion) {
+        OrderStatus next = OrderStatus.parse(status);
+        if (next == null) {
+            throw new RuntimeException("订单状态不能为空");
+        }
         return orderRepository.findById(id)
-                .map(order -> {
-                    try {
-                        order.setStatus(OrderStatus.valueOf(status.toUpperCase()));
-                        return orderRepository.save(order);
-                    } catch (IllegalArgumentException e) {
-                        throw new RuntimeException("无效的订单状态: " + status);
-                    }
-                });
+                .map(order -> transition(order, next, expectedVersion));
     }
     
     /**
@@ -95,41 +353,189 @@ public class OrderService {
      */
     public Optional<Order> cancelOrder(Long id) {
         return orderRepository.findById(id)
-                .map(order -> {
-                    order.setStatus(OrderStatus.CANCELLED);
-                    return orderRepository.save(order);
-                });
+                .map(order -> transition(order, OrderStatus.CANCELLED, null));
+    }
+    
+    /**
+     * 批量变更订单状态
+     * 对每个允许的来源状态先锁定符合条件的行（只取ID和金额），再执行一条 UPDATE ... WHERE status = ?，
+     * 不加载实体；不存在或当前状态不允许变更的订单计入 skippedIds
+     */
+    public BulkTransitionResult bulkTransition(List<Long> orderIds, String status) {
+        OrderStatus next = OrderStatus.parse(status);
+        if (next == null) {
+            throw new RuntimeException("订单状态不能为空");
+        }
+        if (orderIds == null || orderIds.isEmpty()) {
+            throw new RuntimeException("订单ID列表不能为空");
+        }
+        Set<Long> ids = new LinkedHashSet<>(orderIds);
+        if (ids.size() > bulkMaxSize) {
+            throw new RuntimeException("单次最多变更 " + bulkMaxSize + " 个订单");
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        Map<OrderStatus, Integer> updatedByPrevious = new EnumMap<>(OrderStatus.class);
+        Set<Long> updatedIds = new HashSet<>();
+        List<Long> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += bulkChunkSize) {
+            List<Long> chunk = idList.subList(from, Math.min(from + bulkChunkSize, idList.size()));
+            for (OrderStatus previous : OrderStatus.sourcesOf(next)) {
+                List<Object[]> locked = orderRepository.lockForTransition(chunk, previous);
+                if (locked.isEmpty()) {
+                    continue;
+                }
+                List<Long> lockedIds = new ArrayList<>(locked.size());
+                BigDecimal amount = BigDecimal.ZERO;
+                for (Object[] row : locked) {
+                    lockedIds.add((Long) row[0]);
+                    amount = amount.add((BigDecimal) row[1]);
+                    outboxWriter.statusChanged((Long) row[0], (String) row[2], (Long) row[3], (String) row[4], next);
+                }
+                int updated = orderRepository.transitionStatus(lockedIds, previous, next, now);
+                updatedIds.addAll(lockedIds);
+                updatedByPrevious.merge(previous, updated, Integer::sum);
+                orderAggregates.statusChanged(previous, next, updated, amount);
+            }
+        }
+        
+        List<Long> skippedIds = new ArrayList<>();
+        for (Long id : ids) {
+            if (!updatedIds.contains(id)) {
+                skippedIds.add(id);
+            }
+        }
+        return new BulkTransitionResult(next, ids.size(), updatedIds.size(), updatedByPrevious, skippedIds);
+    }
+    
+    /**
+     * 按状态机校验并变更单个订单的状态
+     */
+    private Order transition(Order order, OrderStatus next, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(order.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Order.class, order.getId());
+        }
+        OrderStatus previous = order.getStatus();
+        if (!previous.canTransitionTo(next)) {
+            throw new RuntimeException("订单状态不能从 " + previous + " 变更为 " + next);
+        }
+        order.setStatus(next);
+        Order saved = orderRepository.save(order);
+        orderAggregates.statusChanged(saved, previous);
+        outboxWriter.statusChanged(saved);
+        return saved;
     }
     
     /**
      * 删除订单
      */
     public boolean deleteOrder(Long id) {
-        if (orderRepository.existsById(id)) {
-            orderRepository.deleteById(id);
-            return true;
-        }
-        return false;
+        return orderRepository.findById(id)
+                .map(order -> {
+                    orderRepository.delete(order);
+                    orderAggregates.orderDeleted(order);
+                    productNameIndex.orderDeleted(order);
+                    return true;
+                })
+                .orElse(false);
     }
     
     /**
-     * 获取订单统计信息
+     * 获取订单统计信息（读取增量维护的聚合，不扫描订单表）
      */
+    @Transactional(readOnly = true)
     public OrderStatistics getOrderStatistics() {
-        long totalOrders = orderRepository.count();
-        BigDecimal totalAmount = orderRepository.sumTotalAmount();
-        if (totalAmount == null) totalAmount = BigDecimal.ZERO;
+        OrderAggregates.Snapshot snapshot = orderAggregates.snapshot();
+        return new OrderStatistics(snapshot.getTotalOrders(), snapshot.getTotalAmount(), snapshot.getByStatus());
+    }
+    
+    /**
+     * 获取用户的订单统计信息
+     */
+    @Transactional(readOnly = true)
+    public OrderAggregates.UserTotals getUserOrderStatistics(Long userId) {
+        return orderAggregates.getUserTotals(userId);
+    }
+    
+    /**
+     * 批量创建中的单个订单
+     */
+    public static class OrderItem {
+        private Long userId;
+        private String productName;
+        private Integer quantity;
+        private BigDecimal unitPrice;
+        
+        public Long getUserId() { return userId; }
+        public void setUserId(Long userId) { this.userId = userId; }
+        
+        public String getProductName() { return productName; }
+        public void setProductName(String productName) { this.productName = productName; }
         
-        return new OrderStatistics(totalOrders, totalAmount);
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+        
+        public BigDecimal getUnitPrice() { return unitPrice; }
+        public void setUnitPrice(BigDecimal unitPrice) { this.unitPrice = unitPrice; }
     }
     
     /**
-     * 生成订单号
+     * 批量创建中单个订单的结果
      */
-    private String generateOrderNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String random = String.valueOf((int)(Math.random() * 1000));
-        return "ORD" + timestamp + String.format("%03d", Integer.parseInt(random));
+    public static class BatchItemResult {
+        private final int index;
+        private boolean success;
+        private Long orderId;
+        private String orderNumber;
+        private String error;
+        
+        public BatchItemResult(int index) {
+            this.index = index;
+        }
+        
+        static BatchItemResult failure(int index, String error) {
+            BatchItemResult result = new BatchItemResult(index);
+            result.error = error;
+            return result;
+        }
+        
+        void succeed(Order order) {
+            this.success = true;
+            this.orderId = order.getId();
+            this.orderNumber = order.getOrderNumber();
+        }
+        
+        public int getIndex() { return index; }
+        public boolean isSuccess() { return success; }
+        public Long getOrderId() { return orderId; }
+        public String getOrderNumber() { return orderNumber; }
+        public String getError() { return error; }
+    }
+    
+    /**
+     * 批量状态变更结果
+     */
+    public static class BulkTransitionResult {
+        private final OrderStatus status;
+        private final int requested;
+        private final int updated;
+        private final Map<OrderStatus, Integer> updatedByPreviousStatus;
+        private final List<Long> skippedIds;
+        
+        public BulkTransitionResult(OrderStatus status, int requested, int updated,
+                                    Map<OrderStatus, Integer> updatedByPreviousStatus, List<Long> skippedIds) {
+            this.status = status;
+            this.requested = requested;
+            this.updated = updated;
+            this.updatedByPreviousStatus = updatedByPreviousStatus;
+            this.skippedIds = skippedIds;
+        }
+        
+        public OrderStatus getStatus() { return status; }
+        public int getRequested() { return requested; }
+        public int getUpdated() { return updated; }
+        public Map<OrderStatus, Integer> getUpdatedByPreviousStatus() { return updatedByPreviousStatus; }
+        public List<Long> getSkippedIds() { return skippedIds; }
     }
     
     /**
@@ -138,13 +544,17 @@ public class OrderService {
     public static class OrderStatistics {
         private long totalOrders;
         private BigDecimal totalAmount;
+        private Map<OrderStatus, OrderAggregates.StatusTotals> byStatus;
         
-        public OrderStatistics(long totalOrders, BigDecimal totalAmount) {
+        public OrderStatistics(long totalOrders, BigDecimal totalAmount,
+                               Map<OrderStatus, OrderAggregates.StatusTotals> byStatus) {
             this.totalOrders = totalOrders;
             this.totalAmount = totalAmount;
+            this.byStatus = byStatus;
         }
         
         public long getTotalOrders() { return totalOrders; }
         public BigDecimal getTotalAmount() { return totalAmount; }
+        public Map<OrderStatus, OrderAggregates.StatusTotals> getByStatus() { return byStatus; }
     }
 }
@@ -0,0 +1,242 @@
+package com.example.order.verify;
+
+import com.example.order.cache.UserValidationCache;
+import com.example.order.feign.UserDto;
+import com.example.order.feign.UserServiceClientFallback;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 非阻塞用户验证（带对冲请求）
+ * 先查本地缓存；未命中时直接向某个用户服务实例发起异步请求，
+ * 若该请求超过近期 p95 延迟仍未返回（或已失败），再向另一个实例发起对冲请求，先返回者胜出。
+ * 整个验证受延迟预算约束，超出预算视为无法验证
+ */
+@Component
+public class HedgedUserVerifier {
+
+    private static final String USER_SERVICE = "user-service";
+
+    @Autowired
+    private DiscoveryClient discoveryClient;
+
+    @Autowired
+    private UserValidationCache userValidationCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${order.create.verification-budget-ms:800}")
+    private long verificationBudgetMs;
+
+    @Value("${order.create.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${order.create.hedge.min-delay-ms:20}")
+    private long minHedgeDelayMs;
+
+    @Value("${order.create.hedge.default-delay-ms:100}")
+    private long defaultHedgeDelayMs;
+
+    private final ExecutorService httpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger nextInstance = new AtomicInteger();
+    private final Map<UserVerification.Outcome, Timer> verificationTimers = new ConcurrentHashMap<>();
+    private HttpClient httpClient;
+    private Timer lookupTimer;
+    private Counter hedgedCounter;
+    private Counter cacheHitCounter;
+
+    // p95 每秒最多计算一次
+    private volatile long hedgeDelayMs;
+    private volatile long hedgeDelayComputedAt;
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .executor(httpExecutor)
+                .connectTimeout(Duration.ofMillis(verificationBudgetMs))
+                .build();
+        lookupTimer = Timer.builder("order.user.lookup")
+                .description("单次用户服务实例请求耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        hedgedCounter = Counter.builder("order.user.lookup.hedged")
+                .description("发起对冲请求的次数")
+                .register(meterRegistry);
+        cacheHitCounter = Counter.builder("order.user.verification.cache.hits")
+                .description("直接由本地缓存完成的用户验证次数")
+                .register(meterRegistry);
+        hedgeDelayMs = defaultHedgeDelayMs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpExecutor.shutdownNow();
+    }
+
+    /**
+     * 异步验证用户，结果在延迟预算内一定完成，不会以异常结束
+     */
+    public CompletableFuture<UserVerification> verify(Long userId) {
+        long start = System.nanoTime();
+        Optional<UserDto> cached = userValidationCache.getIfPresent(userId);
+        if (cached != null) {
+            cacheHitCounter.increment();
+            UserVerification verification = cached.map(UserVerification::verified)
+                    .orElseGet(UserVerification::notFound);
+            record(verification, start);
+            return CompletableFuture.completedFuture(verification);
+        }
+
+        List<ServiceInstance> instances = discoveryClient.getInstances(USER_SERVICE);
+        if (instances.isEmpty()) {
+            UserVerification verification = UserVerification.unverified();
+            record(verification, start);
+            return CompletableFuture.completedFuture(verification);
+        }
+
+        CompletableFuture<UserVerification> result = new CompletableFuture<>();
+        // 底层 HTTP 交换，验证结束时取消仍在进行的交换（取消派生阶段不会中止请求）
+        Queue<CompletableFuture<?>> exchanges = new ConcurrentLinkedQueue<>();
+        int first = Math.floorMod(nextInstance.getAndIncrement(), instances.size());
+        CompletableFuture<UserVerification> primary = lookup(instances.get(first), userId, exchanges, result);
+        CompletableFuture<UserVerification> hedge = null;
+        if (hedgeEnabled && instances.size() > 1) {
+            ServiceInstance secondInstance = instances.get((first + 1) % instances.size());
+            // 主请求超过 p95 仍未返回或已失败时，向另一个实例发起对冲请求
+            CompletableFuture<Void> trigger = new CompletableFuture<>();
+            primary.whenComplete((verification, error) -> {
+                if (error != null) {
+                    trigger.complete(null);
+                }
+            });
+            CompletableFuture.delayedExecutor(currentHedgeDelayMs(), TimeUnit.MILLISECONDS)
+                    .execute(() -> trigger.complete(null));
+            hedge = trigger.thenCompose(ignored -> {
+                if (result.isDone()) {
+                    return new CompletableFuture<UserVerification>();
+                }
+                hedgedCounter.increment();
+                return lookup(secondInstance, userId, exchanges, result);
+            });
+        }
+
+        CompletableFuture<UserVerification> hedgeRequest = hedge;
+        AtomicInteger remaining = new AtomicInteger(hedgeRequest != null ? 2 : 1);
+        for (CompletableFuture<UserVerification> request : hedgeRequest != null
+                ? List.of(primary, hedgeRequest) : List.of(primary)) {
+            request.whenComplete((verification, error) -> {
+                if (error == null) {
+                    result.complete(verification);
+                } else if (remaining.decrementAndGet() == 0) {
+                    result.complete(UserVerification.unverified());
+                }
+            });
+        }
+
+        return result.completeOnTimeout(UserVerification.unverified(), verificationBudgetMs, TimeUnit.MILLISECONDS)
+                .whenComplete((verification, error) -> {
+                    // 中止仍在进行的请求（包括落败的对冲请求）
+                    exchanges.forEach(exchange -> exchange.cancel(true));
+                    if (verification.outcome() != UserVerification.Outcome.UNVERIFIED) {
+                        userValidationCache.put(userId, verification.user());
+                    }
+                    record(verification, start);
+                });
+    }
+
+    /**
+     * 向指定实例查询用户，404 视为用户不存在，其他错误以异常结束
+     * 底层交换登记到 exchanges 以便验证结束时中止；验证已结束时立即中止
+     */
+    private CompletableFuture<UserVerification> lookup(ServiceInstance instance, Long userId,
+                                                       Queue<CompletableFuture<?>> exchanges,
+                                                       CompletableFuture<UserVerification> verification) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(instance.getUri() + "/api/users/" + userId))
+                .timeout(Duration.ofMillis(verificationBudgetMs))
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> exchange =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        exchanges.add(exchange);
+        if (verification.isDone()) {
+            exchange.cancel(true);
+        }
+        return exchange
+                .thenApply(response -> {
+                    lookupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (response.statusCode() == 404) {
+                        return UserVerification.notFound();
+                    }
+                    if (response.statusCode() != 200) {
+                        throw new RuntimeException("用户服务返回状态码 " + response.statusCode());
+                    }
+                    try {
+                        UserDto user = objectMapper.readValue(response.body(), UserDto.class);
+                        if (UserServiceClientFallback.FALLBACK_USERNAME.equals(user.getUsername())) {
+                            throw new RuntimeException("用户服务返回降级结果");
+                        }
+                        return UserVerification.verified(user);
+                    } catch (IOException e) {
+                        throw new RuntimeException("无法解析用户信息: " + e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * 对冲延迟：近期单次请求的 p95，不低于 min-delay-ms；还没有样本时使用 default-delay-ms
+     */
+    private long currentHedgeDelayMs() {
+        long now = System.currentTimeMillis();
+        if (now - hedgeDelayComputedAt >= 1000) {
+            hedgeDelayComputedAt = now;
+            for (ValueAtPercentile percentile : lookupTimer.takeSnapshot().percentileValues()) {
+                if (percentile.percentile() == 0.95 && lookupTimer.count() > 0) {
+                    hedgeDelayMs = Math.max(minHedgeDelayMs, (long) percentile.value(TimeUnit.MILLISECONDS));
+                }
+            }
+        }
+        return hedgeDelayMs;
+    }
+
+    private void record(UserVerification verification, long startNanos) {
+        verificationTimers.computeIfAbsent(verification.outcome(), outcome -> Timer.builder("order.user.verification")
+                        .tag("outcome", outcome.name().toLowerCase())
+                        .description("创建订单时用户验证耗时")
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(meterRegistry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
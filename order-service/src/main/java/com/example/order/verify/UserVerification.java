@@ -0,0 +1,30 @@
+package com.example.order.verify;
+
+import com.example.order.feign.UserDto;
+
+/**
+ * 用户验证结果
+ *
+ * @param outcome 验证结论
+ * @param user    用户信息，仅在 VERIFIED 时存在
+ */
+public record UserVerification(Outcome outcome, UserDto user) {
+
+    public enum Outcome {
+        VERIFIED,    // 用户存在
+        NOT_FOUND,   // 用户服务明确返回用户不存在
+        UNVERIFIED   // 用户服务不可用或超出延迟预算，无法确认
+    }
+
+    static UserVerification verified(UserDto user) {
+        return new UserVerification(Outcome.VERIFIED, user);
+    }
+
+    static UserVerification notFound() {
+        return new UserVerification(Outcome.NOT_FOUND, null);
+    }
+
+    static UserVerification unverified() {
+        return new UserVerification(Outcome.UNVERIFIED, null);
+    }
+}
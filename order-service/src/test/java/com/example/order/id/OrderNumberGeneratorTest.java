@@ -0,0 +1,76 @@
+package com.example.order.id;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 订单号生成器并发唯一性测试
+ */
+class OrderNumberGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    private OrderNumberGenerator newGenerator(long nodeId) {
+        OrderNumberGenerator generator = new OrderNumberGenerator();
+        ReflectionTestUtils.setField(generator, "configuredNodeId", nodeId);
+        ReflectionTestUtils.setField(generator, "metadataNodeId", -1L);
+        ReflectionTestUtils.setField(generator, "maxClockDriftMs", 5000L);
+        ReflectionTestUtils.setField(generator, "serverPort", 8082);
+        generator.init();
+        return generator;
+    }
+
+    @Test
+    void concurrentCallersNeverReceiveDuplicateIds() throws Exception {
+        OrderNumberGenerator generator = newGenerator(7);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < IDS_PER_THREAD; j++) {
+                        ids.add(generator.nextId());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    void idsCarryNodeIdAndIncrease() {
+        OrderNumberGenerator generator = newGenerator(7);
+        long previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(7, (id >>> 12) & 1023);
+            previous = id;
+        }
+        assertTrue(generator.nextOrderNumber().startsWith("ORD"));
+    }
+}
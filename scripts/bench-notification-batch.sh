@@ -0,0 +1,33 @@
+#!/bin/bash
+# 批量通知发送耗时基准测试
+# 分别发送 10、1000、100000 个接收者的批次，输出每个批次的耗时
+
+NOTIFICATION_SERVICE_URL=${NOTIFICATION_SERVICE_URL:-"http://localhost:8083"}
+BATCH_SIZES=${BATCH_SIZES:-"10 1000 100000"}
+MAX_CONCURRENCY=${MAX_CONCURRENCY:-200}
+
+echo "=== 批量通知发送基准测试 ==="
+echo "目标: $NOTIFICATION_SERVICE_URL"
+echo "批次并发上限: $MAX_CONCURRENCY"
+echo ""
+
+for size in $BATCH_SIZES; do
+    payload_file=$(mktemp)
+    {
+        printf '{"type":"EMAIL","title":"基准测试","content":"批量发送基准测试","maxConcurrency":%s,"recipients":[' "$MAX_CONCURRENCY"
+        seq 1 "$size" | sed 's/.*/"bench-user-&@example.com"/' | paste -sd, -
+        printf ']}'
+    } > "$payload_file"
+
+    start=$(date +%s.%N)
+    response=$(curl -s -X POST -H "Content-Type: application/json" \
+        --data-binary "@$payload_file" \
+        "$NOTIFICATION_SERVICE_URL/api/notifications/send/batch")
+    end=$(date +%s.%N)
+    rm -f "$payload_file"
+
+    elapsed=$(echo "$end - $start" | bc)
+    echo "批次大小: $size, 耗时: ${elapsed}s"
+    echo "响应: $response"
+    echo "---"
+done
@@ -0,0 +1,40 @@
+#!/bin/bash
+# 通知历史追加吞吐量基准测试
+# 以批量发送写入 ROUNDS x BATCH_SIZE 条历史（接收者数 RECIPIENTS），输出每秒追加条数和历史存储统计
+# 对比内存存储与内存映射日志：分别以 NOTIFICATION_HISTORY_PERSISTENCE=false / true 启动通知服务后运行本脚本；
+# 为排除渠道耗时，启动时建议设置 notification.channels.email.min-latency-ms=0、max-latency-ms=0、failure-rate=0
+
+NOTIFICATION_SERVICE_URL=${NOTIFICATION_SERVICE_URL:-"http://localhost:8083"}
+ROUNDS=${ROUNDS:-20}
+BATCH_SIZE=${BATCH_SIZE:-5000}
+RECIPIENTS=${RECIPIENTS:-5000}
+MAX_CONCURRENCY=${MAX_CONCURRENCY:-200}
+
+echo "=== 通知历史追加基准测试 ==="
+echo "目标: $NOTIFICATION_SERVICE_URL"
+echo "轮数: $ROUNDS, 每批: $BATCH_SIZE, 接收者: $RECIPIENTS"
+echo ""
+
+payload_file=$(mktemp)
+{
+    printf '{"type":"EMAIL","title":"基准测试","content":"通知历史追加基准测试","maxConcurrency":%s,"recipients":[' "$MAX_CONCURRENCY"
+    seq 1 "$BATCH_SIZE" | awk -v n="$RECIPIENTS" '{ printf "%s\"bench-history-%d@example.com\"", (NR > 1 ? "," : ""), ($1 - 1) % n }'
+    printf ']}'
+} > "$payload_file"
+
+# 预热一轮，不计入结果
+curl -s -o /dev/null -X POST -H "Content-Type: application/json" \
+    --data-binary "@$payload_file" "$NOTIFICATION_SERVICE_URL/api/notifications/send/batch"
+
+start=$(date +%s.%N)
+for round in $(seq 1 "$ROUNDS"); do
+    curl -s -o /dev/null -X POST -H "Content-Type: application/json" \
+        --data-binary "@$payload_file" "$NOTIFICATION_SERVICE_URL/api/notifications/send/batch"
+done
+end=$(date +%s.%N)
+rm -f "$payload_file"
+
+awk -v s="$start" -v e="$end" -v n="$((ROUNDS * BATCH_SIZE))" \
+    'BEGIN { printf "追加 %d 条, 耗时 %.3fs, 吞吐量 %.0f 条/秒\n", n, e - s, n / (e - s) }'
+echo "历史存储统计:"
+curl -s "$NOTIFICATION_SERVICE_URL/api/notifications/statistics" | grep -o '"history":{[^}]*}'
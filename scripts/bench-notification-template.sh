@@ -0,0 +1,80 @@
+#!/bin/bash
+# 通知模板渲染基准测试
+# 在进程内对比预编译模板（CompiledTemplate.render）与逐个变量 String.replace 的渲染吞吐量，
+# 需要先构建通知服务（mvn package），使用 target/classes 中的 CompiledTemplate
+
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+CLASSES_DIR=${CLASSES_DIR:-"$SCRIPT_DIR/../notification-service/target/classes"}
+ITERATIONS=${ITERATIONS:-2000000}
+VARIABLES=${VARIABLES:-"1 4 16"}
+JAVA=${JAVA:-java}
+
+if [ ! -d "$CLASSES_DIR" ]; then
+    echo "未找到 $CLASSES_DIR，请先执行 mvn package"
+    exit 1
+fi
+
+work_dir=$(mktemp -d)
+trap 'rm -rf "$work_dir"' EXIT
+cat > "$work_dir/TemplateRenderBench.java" <<'JAVA'
+import com.example.notification.template.CompiledTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class TemplateRenderBench {
+    public static void main(String[] args) {
+        int iterations = Integer.parseInt(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            run(Integer.parseInt(args[i]), iterations);
+        }
+    }
+
+    private static void run(int variableCount, int iterations) {
+        StringBuilder source = new StringBuilder("尊敬的用户，");
+        Map<String, String> variables = new HashMap<>();
+        for (int v = 0; v < variableCount; v++) {
+            source.append("字段").append(v).append("：{{var").append(v).append("}}，");
+            variables.put("var" + v, "值" + v);
+        }
+        source.append("感谢您的使用。");
+        String text = source.toString();
+        CompiledTemplate template = CompiledTemplate.compile(text);
+        StringBuilder builder = new StringBuilder();
+
+        long sink = 0;
+        // 预热
+        for (int i = 0; i < iterations / 4; i++) {
+            sink += template.render(variables, builder).length() + replace(text, variables).length();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += template.render(variables, builder).length();
+        }
+        long compiled = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += replace(text, variables).length();
+        }
+        long replaced = System.nanoTime() - start;
+        System.out.printf("变量数: %d, 预编译: %.0f ns/次, String.replace: %.0f ns/次, 加速比: %.1fx%n",
+                variableCount, (double) compiled / iterations, (double) replaced / iterations,
+                (double) replaced / compiled);
+        // 防止渲染结果被优化掉
+        if (sink == 0) {
+            System.out.println();
+        }
+    }
+
+    private static String replace(String text, Map<String, String> variables) {
+        for (Map.Entry<String, String> entry : variables.entrySet()) {
+            text = text.replace("{{" + entry.getKey() + "}}", entry.getValue());
+        }
+        return text;
+    }
+}
+JAVA
+
+echo "=== 通知模板渲染基准测试 ==="
+echo "每组迭代: $ITERATIONS"
+"$JAVA" -Dstdout.encoding=UTF-8 -cp "$CLASSES_DIR" "$work_dir/TemplateRenderBench.java" "$ITERATIONS" $VARIABLES
@@ -0,0 +1,40 @@
+#!/bin/bash
+# 批量创建订单吞吐量对比
+# 同样数量的订单分别用 N 次 POST /api/orders 和一次 POST /api/orders/batch 创建，输出耗时和吞吐量
+
+ORDER_SERVICE_URL=${ORDER_SERVICE_URL:-"http://localhost:8082"}
+ORDER_COUNT=${ORDER_COUNT:-1000}
+USER_COUNT=${USER_COUNT:-10}
+
+echo "=== 批量创建订单吞吐量对比 ==="
+echo "目标: $ORDER_SERVICE_URL"
+echo "订单数量: $ORDER_COUNT（涉及 $USER_COUNT 个用户）"
+echo ""
+
+# 逐个创建
+start=$(date +%s.%N)
+for i in $(seq 1 "$ORDER_COUNT"); do
+    curl -s -o /dev/null -X POST -H "Content-Type: application/json" \
+        -d "{\"userId\":$(( i % USER_COUNT + 1 )),\"productName\":\"单个创建-$i\",\"quantity\":1,\"unitPrice\":9.90}" \
+        "$ORDER_SERVICE_URL/api/orders"
+done
+end=$(date +%s.%N)
+awk -v s="$start" -v e="$end" -v n="$ORDER_COUNT" 'BEGIN { printf "逐个创建: 耗时 %.3fs, 吞吐量 %.1f 单/秒\n", e - s, n / (e - s) }'
+
+# 批量创建
+payload_file=$(mktemp)
+{
+    printf '{"orders":['
+    seq 1 "$ORDER_COUNT" | awk -v users="$USER_COUNT" \
+        '{ printf "%s{\"userId\":%d,\"productName\":\"批量创建-%d\",\"quantity\":1,\"unitPrice\":9.90}", (NR > 1 ? "," : ""), $1 % users + 1, $1 }'
+    printf ']}'
+} > "$payload_file"
+
+start=$(date +%s.%N)
+response=$(curl -s -X POST -H "Content-Type: application/json" \
+    --data-binary "@$payload_file" \
+    "$ORDER_SERVICE_URL/api/orders/batch")
+end=$(date +%s.%N)
+rm -f "$payload_file"
+awk -v s="$start" -v e="$end" -v n="$ORDER_COUNT" 'BEGIN { printf "批量创建: 耗时 %.3fs, 吞吐量 %.1f 单/秒\n", e - s, n / (e - s) }'
+echo "批量响应摘要: $(echo "$response" | grep -oE '"(total|successCount|failureCount)":[0-9]+' | paste -sd' ' -)"
@@ -0,0 +1,65 @@
+#!/bin/bash
+# 订单流式导出基准
+# 先通过 POST /api/orders/batch 写入 ORDER_COUNT 条订单（SEED=false 时跳过），
+# 然后分别以 CSV 和 NDJSON 导出全部订单，输出行数、耗时、吞吐量，
+# 以及导出期间通过 /actuator/metrics 采样到的堆内存峰值。
+# 建议以较小的堆启动订单服务（例如 -Xmx256m）来验证内存占用不随行数增长
+
+ORDER_SERVICE_URL=${ORDER_SERVICE_URL:-"http://localhost:8082"}
+ORDER_COUNT=${ORDER_COUNT:-1000000}
+USER_COUNT=${USER_COUNT:-10}
+BATCH_SIZE=${BATCH_SIZE:-1000}
+SEED=${SEED:-true}
+
+echo "=== 订单流式导出基准 ==="
+echo "目标: $ORDER_SERVICE_URL"
+
+if [ "$SEED" = "true" ]; then
+    echo "写入 $ORDER_COUNT 条订单（每批 $BATCH_SIZE 条）..."
+    payload_file=$(mktemp)
+    {
+        printf '{"orders":['
+        seq 1 "$BATCH_SIZE" | awk -v users="$USER_COUNT" \
+            '{ printf "%s{\"userId\":%d,\"productName\":\"导出测试-%d\",\"quantity\":1,\"unitPrice\":9.90}", (NR > 1 ? "," : ""), $1 % users + 1, $1 }'
+        printf ']}'
+    } > "$payload_file"
+    start=$(date +%s.%N)
+    for _ in $(seq 1 $(( ORDER_COUNT / BATCH_SIZE ))); do
+        curl -s -o /dev/null -X POST -H "Content-Type: application/json" \
+            --data-binary "@$payload_file" "$ORDER_SERVICE_URL/api/orders/batch"
+    done
+    end=$(date +%s.%N)
+    rm -f "$payload_file"
+    awk -v s="$start" -v e="$end" 'BEGIN { printf "写入耗时 %.1fs\n", e - s }'
+fi
+echo ""
+
+heap_used() {
+    curl -s "$ORDER_SERVICE_URL/actuator/metrics/jvm.memory.used?tag=area:heap" \
+        | grep -oE '"value":[0-9.E+]+' | head -1 | cut -d: -f2
+}
+
+for format in csv ndjson; do
+    peak_file=$(mktemp)
+    echo 0 > "$peak_file"
+    (
+        while true; do
+            used=$(heap_used)
+            [ -n "$used" ] && awk -v u="$used" -v f="$peak_file" \
+                'BEGIN { getline p < f; if (u + 0 > p + 0) { print u > f } }'
+            sleep 0.2
+        done
+    ) &
+    sampler=$!
+
+    start=$(date +%s.%N)
+    rows=$(curl -s "$ORDER_SERVICE_URL/api/orders/export?format=$format" | wc -l)
+    end=$(date +%s.%N)
+    kill "$sampler" 2>/dev/null
+    wait "$sampler" 2>/dev/null
+
+    [ "$format" = "csv" ] && rows=$(( rows - 1 ))
+    awk -v s="$start" -v e="$end" -v n="$rows" -v f="$format" -v p="$(cat "$peak_file")" \
+        'BEGIN { printf "%-6s 行数 %d, 耗时 %.2fs, 吞吐量 %.0f 行/秒, 堆内存峰值 %.0f MB\n", f, n, e - s, n / (e - s), p / 1048576 }'
+    rm -f "$peak_file"
+done
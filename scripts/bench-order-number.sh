@@ -0,0 +1,126 @@
+#!/bin/bash
+# 订单号生成基准测试
+# 在进程内对比 Snowflake 风格的 OrderNumberGenerator 与原先的 "时间戳(秒) + 0-999 随机数" 方案：
+# 按线程数 THREADS 分别测量 DURATION_MS 内的吞吐量（竞争下的扩展性），以及每个线程生成 IDS_PER_THREAD 个号时的重复数。
+# 注意：新生成器每毫秒最多 4096 个号，超出时预支后续毫秒，因此持续生成速率上限约为 4,096,000 个/秒
+# 需要先构建订单服务（mvn package），使用 target/classes 中的生成器
+
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+SERVICE_DIR=${SERVICE_DIR:-"$SCRIPT_DIR/../order-service"}
+THREADS=${THREADS:-"1 4 16"}
+DURATION_MS=${DURATION_MS:-2000}
+IDS_PER_THREAD=${IDS_PER_THREAD:-20000}
+JAVA=${JAVA:-java}
+
+if [ ! -d "$SERVICE_DIR/target/classes" ]; then
+    echo "未找到 $SERVICE_DIR/target/classes，请先执行 mvn package"
+    exit 1
+fi
+
+work_dir=$(mktemp -d)
+trap 'rm -rf "$work_dir"' EXIT
+# 生成器依赖 SLF4J 等类，使用订单服务的依赖类路径
+(cd "$SERVICE_DIR" && mvn -q dependency:build-classpath -Dmdep.outputFile="$work_dir/classpath.txt") || exit 1
+
+cat > "$work_dir/OrderNumberBench.java" <<'JAVA'
+import com.example.order.id.OrderNumberGenerator;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public class OrderNumberBench {
+    public static void main(String[] args) throws Exception {
+        long durationMs = Long.parseLong(args[0]);
+        int idsPerThread = Integer.parseInt(args[1]);
+        OrderNumberGenerator generator = new OrderNumberGenerator();
+        set(generator, "configuredNodeId", 1L);
+        set(generator, "metadataNodeId", -1L);
+        // 压测速率可能超过每毫秒 4096 个的序列号上限而预支后续毫秒，放宽时钟漂移上限以免中途停止生成
+        set(generator, "maxClockDriftMs", 600_000L);
+        generator.init();
+
+        for (int i = 2; i < args.length; i++) {
+            int threads = Integer.parseInt(args[i]);
+            for (String name : new String[] {"snowflake", "legacy"}) {
+                Supplier<String> next = name.equals("snowflake") ? generator::nextOrderNumber : OrderNumberBench::legacy;
+                run(next, threads, durationMs / 4, 0);
+                double throughput = run(next, threads, durationMs, 0);
+                double duplicates = run(next, threads, 0, idsPerThread);
+                System.out.printf("线程数: %2d, %-9s 吞吐量: %,12.0f 个/秒, 重复: %.0f / %d%n",
+                        threads, name, throughput, duplicates, (long) threads * idsPerThread);
+            }
+        }
+    }
+
+    // 原 OrderService.generateOrderNumber
+    private static String legacy() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        String random = String.valueOf((int) (Math.random() * 1000));
+        return "ORD" + timestamp + String.format("%03d", Integer.parseInt(random));
+    }
+
+    /**
+     * durationMs > 0 时返回吞吐量（个/秒）；否则每个线程生成 count 个号并返回重复数
+     */
+    private static double run(Supplier<String> next, int threads, long durationMs, int count) throws Exception {
+        LongAdder generated = new LongAdder();
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        LongAdder duplicates = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] deadline = new long[1];
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    if (durationMs > 0) {
+                        long local = 0;
+                        while (System.nanoTime() < deadline[0]) {
+                            for (int i = 0; i < 256; i++) {
+                                if (next.get() == null) {
+                                    return;
+                                }
+                            }
+                            local += 256;
+                        }
+                        generated.add(local);
+                    } else {
+                        for (int i = 0; i < count; i++) {
+                            if (!seen.add(next.get())) {
+                                duplicates.increment();
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        deadline[0] = begin + durationMs * 1_000_000;
+        start.countDown();
+        done.await();
+        return durationMs > 0 ? generated.sum() * 1e9 / (System.nanoTime() - begin) : duplicates.sum();
+    }
+
+    private static void set(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+}
+JAVA
+
+echo "=== 订单号生成基准测试 ==="
+echo "测量时长: ${DURATION_MS}ms, 重复检测: 每线程 $IDS_PER_THREAD 个"
+"$JAVA" -Dstdout.encoding=UTF-8 -cp "$SERVICE_DIR/target/classes:$(cat "$work_dir/classpath.txt")" \
+    "$work_dir/OrderNumberBench.java" "$DURATION_MS" "$IDS_PER_THREAD" $THREADS
@@ -0,0 +1,62 @@
+#!/bin/bash
+# 订单搜索延迟基准
+# 先通过 POST /api/orders/batch 写入 ORDER_COUNT 条商品名称各异的订单（SEED=false 时跳过），
+# 然后对全文检索、前缀匹配、金额范围、时间范围等查询各执行 RUNS 次，输出平均值、p50、p99 延迟（毫秒）
+
+ORDER_SERVICE_URL=${ORDER_SERVICE_URL:-"http://localhost:8082"}
+ORDER_COUNT=${ORDER_COUNT:-1000000}
+USER_COUNT=${USER_COUNT:-10}
+BATCH_SIZE=${BATCH_SIZE:-1000}
+RUNS=${RUNS:-50}
+SEED=${SEED:-true}
+
+echo "=== 订单搜索延迟基准 ==="
+echo "目标: $ORDER_SERVICE_URL"
+
+if [ "$SEED" = "true" ]; then
+    echo "写入 $ORDER_COUNT 条订单（每批 $BATCH_SIZE 条）..."
+    payload_file=$(mktemp)
+    start=$(date +%s.%N)
+    for batch in $(seq 0 $(( ORDER_COUNT / BATCH_SIZE - 1 ))); do
+        # 商品名称 = 品牌 + 品类 + 型号，型号使全文检索和前缀匹配具有不同的选择性
+        seq 1 "$BATCH_SIZE" | awk -v users="$USER_COUNT" -v b="$batch" -v size="$BATCH_SIZE" '
+            BEGIN {
+                split("Apple 华为 小米 联想 戴尔 索尼 三星", brands, " ")
+                split("手机 笔记本 耳机 显示器 键盘 平板", kinds, " ")
+                printf "{\"orders\":["
+            }
+            {
+                i = b * size + $1
+                name = brands[i % 7 + 1] " " kinds[int(i / 7) % 6 + 1] " X" (i % 997)
+                printf "%s{\"userId\":%d,\"productName\":\"%s\",\"quantity\":%d,\"unitPrice\":%d.90}", \
+                    (NR > 1 ? "," : ""), i % users + 1, name, i % 5 + 1, i % 2000
+            }
+            END { printf "]}" }' > "$payload_file"
+        curl -s -o /dev/null -X POST -H "Content-Type: application/json" \
+            --data-binary "@$payload_file" "$ORDER_SERVICE_URL/api/orders/batch"
+    done
+    end=$(date +%s.%N)
+    rm -f "$payload_file"
+    awk -v s="$start" -v e="$end" 'BEGIN { printf "写入耗时 %.1fs\n", e - s }'
+fi
+echo ""
+
+today=$(date +%Y-%m-%d)
+run_query() {
+    local label=$1 query=$2
+    for _ in $(seq 1 "$RUNS"); do
+        curl -s -o /dev/null -w '%{time_total}\n' "$ORDER_SERVICE_URL/api/orders/search?$query"
+    done | sort -n | awk -v label="$label" '
+        { t[NR] = $1 * 1000; sum += t[NR] }
+        END {
+            p99 = int(NR * 0.99); if (p99 < 1) p99 = 1
+            printf "%-28s 平均 %7.1fms  p50 %7.1fms  p99 %7.1fms\n", label, sum / NR, t[int(NR * 0.5) + 1], t[p99]
+        }'
+}
+
+run_query "全文: 华为 耳机 X42"       "q=%E5%8D%8E%E4%B8%BA%20%E8%80%B3%E6%9C%BA%20x42&limit=50"
+run_query "全文: 手机（高频词）"       "q=%E6%89%8B%E6%9C%BA&limit=50"
+run_query "全文 + 金额范围"            "q=%E7%B4%A2%E5%B0%BC&minAmount=9000&maxAmount=9100&limit=50"
+run_query "前缀: Apple 平板"          "prefix=Apple%20%E5%B9%B3%E6%9D%BF&limit=50"
+run_query "金额范围 [500, 501]"       "minAmount=500&maxAmount=501&limit=50"
+run_query "时间范围: 今天"            "from=${today}T00:00:00&limit=50"
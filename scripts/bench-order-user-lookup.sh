@@ -0,0 +1,78 @@
+#!/bin/bash
+# 并发创建订单时的用户查询合并效果
+# 先批量创建一批新用户（保证订单服务的用户缓存未命中），再以 CONCURRENCY 个并发循环为这些用户创建订单，
+# 输出订单创建延迟、用户服务实际收到的单个查询 / 批量查询次数，以及订单服务合并器的批大小分布。
+# 在订单服务上切换 order.user-lookup.coalesce.enabled 分别运行，对比合并前后的效果
+
+USER_SERVICE_URL=${USER_SERVICE_URL:-"http://localhost:8081"}
+ORDER_SERVICE_URL=${ORDER_SERVICE_URL:-"http://localhost:8082"}
+CONCURRENCY=${CONCURRENCY:-64}
+ORDERS_PER_WORKER=${ORDERS_PER_WORKER:-5}
+
+user_count=$((CONCURRENCY * ORDERS_PER_WORKER))
+echo "=== 并发创建订单的用户查询合并 ==="
+echo "用户服务: $USER_SERVICE_URL"
+echo "订单服务: $ORDER_SERVICE_URL"
+echo "并发: $CONCURRENCY，每个并发 $ORDERS_PER_WORKER 单（共 $user_count 个不同用户）"
+echo ""
+
+# 用户服务某个接口累计收到的请求数
+request_count() {
+    curl -s -G --data-urlencode "tag=uri:$1" "$USER_SERVICE_URL/actuator/metrics/http.server.requests" \
+        | grep -oE '"statistic":"COUNT","value":[0-9.E+]+' | grep -oE '[0-9.E+]+$' \
+        | awk '{ printf "%d", $1 }'
+}
+
+suffix=$(date +%s)
+ids_file=$(mktemp)
+remaining=$user_count
+offset=0
+while [ "$remaining" -gt 0 ]; do
+    chunk=$(( remaining > 1000 ? 1000 : remaining ))
+    payload=$(seq "$offset" $((offset + chunk - 1)) | awk -v s="$suffix" '
+        BEGIN { printf "{\"users\":[" }
+        { printf "%s{\"username\":\"lookup%s-%d\",\"email\":\"lookup%s-%d@example.com\",\"password\":\"lookup-password\"}", (NR > 1 ? "," : ""), s, $1, s, $1 }
+        END { printf "]}" }')
+    curl -s -X POST -H "Content-Type: application/json" -d "$payload" "$USER_SERVICE_URL/api/users/bulk" \
+        | grep -oE '"userId":[0-9]+' | cut -d: -f2 >> "$ids_file"
+    remaining=$((remaining - chunk))
+    offset=$((offset + chunk))
+done
+if [ "$(wc -l < "$ids_file")" -ne "$user_count" ]; then
+    echo "创建测试用户失败"
+    rm -f "$ids_file"
+    exit 1
+fi
+
+single_before=$(request_count "/api/users/{id}")
+batch_before=$(request_count "/api/users/batch")
+
+latency_file=$(mktemp)
+start=$(date +%s.%N)
+for worker in $(seq 0 $((CONCURRENCY - 1))); do
+    (
+        for user_id in $(sed -n "$((worker * ORDERS_PER_WORKER + 1)),$(((worker + 1) * ORDERS_PER_WORKER))p" "$ids_file"); do
+            curl -s -o /dev/null -w '%{time_total}\n' -X POST -H "Content-Type: application/json" \
+                -d "{\"userId\":$user_id,\"productName\":\"合并查询测试\",\"quantity\":1,\"unitPrice\":9.90}" \
+                "$ORDER_SERVICE_URL/api/orders"
+        done >> "$latency_file"
+    ) &
+done
+wait
+end=$(date +%s.%N)
+
+sort -n "$latency_file" | awk -v s="$start" -v e="$end" '
+    { t[NR] = $1 * 1000; sum += t[NR] }
+    END {
+        p99 = int(NR * 0.99); if (p99 < 1) p99 = 1
+        printf "创建订单 %d 单: 耗时 %.2fs  平均 %.1fms  p50 %.1fms  p99 %.1fms\n", NR, e - s, sum / NR, t[int(NR * 0.5) + 1], t[p99]
+    }'
+rm -f "$latency_file" "$ids_file"
+
+single_after=$(request_count "/api/users/{id}")
+batch_after=$(request_count "/api/users/batch")
+echo "用户服务收到的请求: 单个查询 $(( ${single_after:-0} - ${single_before:-0} )) 次，批量查询 $(( ${batch_after:-0} - ${batch_before:-0} )) 次"
+echo ""
+echo "订单服务合并统计:"
+curl -s "$ORDER_SERVICE_URL/api/orders/user-lookup/statistics"
+echo ""
@@ -0,0 +1,59 @@
+#!/bin/bash
+# 登录洪峰下的接口延迟
+# 分别在空闲和 CONCURRENCY 个并发登录循环持续施压时测量 GET /api/users/{id} 的延迟，
+# 验证密码哈希在专用线程池中执行后，登录洪峰不会拖慢其他接口；同时统计登录的 200/401/503 数量
+
+USER_SERVICE_URL=${USER_SERVICE_URL:-"http://localhost:8081"}
+CONCURRENCY=${CONCURRENCY:-64}
+DURATION=${DURATION:-20}
+SAMPLES=${SAMPLES:-200}
+
+echo "=== 登录洪峰下的接口延迟 ==="
+echo "目标: $USER_SERVICE_URL"
+echo "并发登录: $CONCURRENCY，持续 ${DURATION}s"
+echo ""
+
+suffix=$(date +%s%N)
+user_id=$(curl -s -X POST -H "Content-Type: application/json" \
+    -d "{\"username\":\"flood$suffix\",\"email\":\"flood$suffix@example.com\",\"password\":\"flood-password\",\"fullName\":\"压测用户\"}" \
+    "$USER_SERVICE_URL/api/users" | grep -oE '"id":[0-9]+' | head -1 | cut -d: -f2)
+if [ -z "$user_id" ]; then
+    echo "创建压测用户失败"
+    exit 1
+fi
+
+measure() {
+    local label=$1
+    for _ in $(seq 1 "$SAMPLES"); do
+        curl -s -o /dev/null -w '%{time_total}\n' "$USER_SERVICE_URL/api/users/$user_id"
+    done | sort -n | awk -v label="$label" '
+        { t[NR] = $1 * 1000; sum += t[NR] }
+        END {
+            p99 = int(NR * 0.99); if (p99 < 1) p99 = 1
+            printf "%-10s GET /api/users/{id}  平均 %6.1fms  p50 %6.1fms  p99 %6.1fms\n", label, sum / NR, t[int(NR * 0.5) + 1], t[p99]
+        }'
+}
+
+measure "空闲"
+
+status_file=$(mktemp)
+deadline=$(( $(date +%s) + DURATION ))
+for _ in $(seq 1 "$CONCURRENCY"); do
+    (
+        while [ "$(date +%s)" -lt "$deadline" ]; do
+            curl -s -o /dev/null -w '%{http_code}\n' -X POST -H "Content-Type: application/json" \
+                -d "{\"usernameOrEmail\":\"flood$suffix\",\"password\":\"flood-password\"}" \
+                "$USER_SERVICE_URL/api/users/login"
+        done >> "$status_file"
+    ) &
+done
+sleep 3
+measure "登录洪峰中"
+wait
+
+echo ""
+sort "$status_file" | uniq -c | awk -v d="$DURATION" '{ total += $1; printf "登录 HTTP %s: %d\n", $2, $1 } END { printf "登录吞吐量: %.1f 次/秒\n", total / d }'
+rm -f "$status_file"
+curl -s "$USER_SERVICE_URL/actuator/metrics/user.password.hash?tag=operation:verify" \
+    | grep -oE '"statistic":"(COUNT|TOTAL_TIME|MAX)","value":[0-9.E+]+' | sed 's/"statistic"://; s/,"value"/=/; s/"//g' | paste -sd' ' - \
+    | sed 's/^/哈希校验指标: /'
@@ -0,0 +1,153 @@
+#!/bin/bash
+# 用户缓存多实例失效测试
+# 在本机启动两个共享同一 H2 文件数据库的用户服务实例（不依赖 Nacos，服务发现使用静态实例列表），
+# 先通过实例 B 查询用户使其进入缓存，再通过实例 A 修改/删除用户，
+# 测量实例 B 返回新数据所需的时间：应远小于缓存 ttl，说明是广播失效而不是过期生效。
+# 已有运行中的实例（例如注册在 Nacos 上）时，设置 START_INSTANCES=false 并指定 URL_A/URL_B
+
+JAR=${JAR:-"user-service/target/user-service-1.0.0.jar"}
+START_INSTANCES=${START_INSTANCES:-true}
+PORT_A=${PORT_A:-8081}
+PORT_B=${PORT_B:-8181}
+URL_A=${URL_A:-"http://localhost:$PORT_A"}
+URL_B=${URL_B:-"http://localhost:$PORT_B"}
+ROUNDS=${ROUNDS:-20}
+MAX_WAIT_MS=${MAX_WAIT_MS:-2000}
+
+echo "=== 用户缓存多实例失效测试 ==="
+echo "实例 A: $URL_A"
+echo "实例 B: $URL_B"
+echo ""
+
+pids=()
+db_dir=$(mktemp -d)
+cleanup() {
+    for pid in "${pids[@]}"; do
+        kill "$pid" 2>/dev/null
+    done
+    rm -rf "$db_dir"
+}
+trap cleanup EXIT
+
+start_instance() {
+    local port=$1
+    java -jar "$JAR" \
+        --server.port="$port" \
+        --spring.config.import= \
+        --spring.cloud.nacos.discovery.enabled=false \
+        --spring.cloud.nacos.config.enabled=false \
+        --spring.cloud.discovery.client.simple.instances.user-service[0].uri="http://localhost:$PORT_A" \
+        --spring.cloud.discovery.client.simple.instances.user-service[1].uri="http://localhost:$PORT_B" \
+        --spring.datasource.url="jdbc:h2:file:$db_dir/userdb;AUTO_SERVER=TRUE" \
+        --spring.jpa.hibernate.ddl-auto=update \
+        --spring.jpa.show-sql=false \
+        > "$db_dir/instance-$port.log" 2>&1 &
+    pids+=($!)
+}
+
+wait_ready() {
+    local url=$1
+    for _ in $(seq 1 120); do
+        if curl -s -o /dev/null -f "$url/api/users/health"; then
+            return 0
+        fi
+        sleep 1
+    done
+    echo "实例未就绪: $url"
+    exit 1
+}
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# 轮询实例 B 直到响应满足条件，输出等待的毫秒数，超时输出 -1
+wait_until() {
+    local path=$1 pattern=$2
+    local start
+    start=$(now_ms)
+    while true; do
+        if curl -s -w ' %{http_code}' "$URL_B$path" | grep -q "$pattern"; then
+            echo $(( $(now_ms) - start ))
+            return
+        fi
+        if [ $(( $(now_ms) - start )) -gt "$MAX_WAIT_MS" ]; then
+            echo -1
+            return
+        fi
+        sleep 0.005
+    done
+}
+
+if [ "$START_INSTANCES" = "true" ]; then
+    if [ ! -f "$JAR" ]; then
+        echo "未找到 $JAR，请先执行 mvn package"
+        exit 1
+    fi
+    # 先启动 A 建表，避免两个实例同时建表
+    start_instance "$PORT_A"
+    wait_ready "$URL_A"
+    start_instance "$PORT_B"
+fi
+wait_ready "$URL_A"
+wait_ready "$URL_B"
+
+suffix=$(date +%s%N)
+user_id=$(curl -s -X POST -H "Content-Type: application/json" \
+    -d "{\"username\":\"cache$suffix\",\"email\":\"cache$suffix@example.com\",\"password\":\"cache-password\",\"fullName\":\"缓存测试\"}" \
+    "$URL_A/api/users" | grep -oE '"id":[0-9]+' | head -1 | cut -d: -f2)
+if [ -z "$user_id" ]; then
+    echo "创建测试用户失败"
+    exit 1
+fi
+
+failures=0
+lags=$(mktemp)
+for round in $(seq 1 "$ROUNDS"); do
+    # 通过实例 B 查询两次，确保旧值已进入缓存
+    curl -s -o /dev/null "$URL_B/api/users/$user_id"
+    curl -s -o /dev/null "$URL_B/api/users/username/cache$suffix"
+    curl -s -o /dev/null -X PUT -H "Content-Type: application/json" \
+        -d "{\"fullName\":\"round-$round\"}" "$URL_A/api/users/$user_id"
+    by_id=$(wait_until "/api/users/$user_id" "round-$round\"")
+    by_username=$(wait_until "/api/users/username/cache$suffix" "round-$round\"")
+    if [ "$by_id" -lt 0 ] || [ "$by_username" -lt 0 ]; then
+        echo "第 $round 轮：实例 B 在 ${MAX_WAIT_MS}ms 内仍返回旧数据"
+        failures=$((failures + 1))
+    else
+        echo "$by_id" >> "$lags"
+        echo "$by_username" >> "$lags"
+    fi
+done
+
+curl -s -o /dev/null "$URL_B/api/users/$user_id"
+curl -s -o /dev/null -X DELETE "$URL_A/api/users/$user_id"
+deleted=$(wait_until "/api/users/$user_id" " 404$")
+if [ "$deleted" -lt 0 ]; then
+    echo "删除后实例 B 在 ${MAX_WAIT_MS}ms 内仍返回已删除的用户"
+    failures=$((failures + 1))
+else
+    echo "删除后实例 B 返回 404 用时: ${deleted}ms"
+fi
+
+echo ""
+sort -n "$lags" | awk '
+    { t[NR] = $1; sum += $1 }
+    END {
+        if (NR == 0) { print "没有成功的轮次"; exit }
+        printf "修改后实例 B 返回新数据用时（%d 次）: 平均 %.1fms  p50 %dms  最大 %dms\n", NR, sum / NR, t[int(NR * 0.5) + 1], t[NR]
+    }'
+rm -f "$lags"
+
+echo ""
+echo "实例 B 缓存统计:"
+curl -s "$URL_B/api/users/cache/statistics"
+echo ""
+
+if [ "$failures" -gt 0 ]; then
+    echo ""
+    echo "失败: $failures 项"
+    exit 1
+fi
+echo ""
+echo "通过"
@@ -0,0 +1,10 @@
+package com.example.user.cache;
+
+import java.util.List;
+
+/**
+ * 用户缓存失效消息，在实例之间广播
+ * origin 为发出实例的标识，issuedAt 为发出时间（毫秒），用于统计失效延迟
+ */
+public record CacheInvalidation(String origin, List<Long> userIds, List<String> usernames, long issuedAt) {
+}
@@ -0,0 +1,149 @@
+package com.example.user.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户缓存失效广播
+ * 通过服务发现（Nacos）找到所有用户服务实例，异步发送失效消息；
+ * 包括本实例在内一律发送，接收方根据 origin 忽略自己发出的消息
+ */
+@Component
+public class CacheInvalidationBroadcaster {
+    
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBroadcaster.class);
+    
+    private static final String INVALIDATION_PATH = "/api/users/cache/invalidations";
+    
+    @Autowired
+    private DiscoveryClient discoveryClient;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${spring.application.name:user-service}")
+    private String serviceName;
+    
+    @Value("${user.cache.invalidation.timeout-ms:1000}")
+    private long timeoutMs;
+    
+    // 本实例标识，每次启动重新生成
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ExecutorService httpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpClient httpClient;
+    private Timer deliveryTimer;
+    private Counter deliveredCounter;
+    private Counter failedCounter;
+    
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .executor(httpExecutor)
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+        deliveryTimer = Timer.builder("user.cache.invalidation.delivery")
+                .description("向单个实例发送失效消息的耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        deliveredCounter = Counter.builder("user.cache.invalidation.broadcast")
+                .tag("outcome", "success")
+                .description("发送给其他实例的失效消息数量")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("user.cache.invalidation.broadcast")
+                .tag("outcome", "failure")
+                .description("发送给其他实例的失效消息数量")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        httpExecutor.shutdownNow();
+    }
+    
+    /**
+     * 向所有实例异步广播失效消息，不等待结果；发送失败的实例由缓存 ttl 兜底
+     */
+    public void broadcast(List<Long> userIds, List<String> usernames) {
+        List<ServiceInstance> instances;
+        byte[] body;
+        try {
+            instances = discoveryClient.getInstances(serviceName);
+            body = objectMapper.writeValueAsBytes(new CacheInvalidation(
+                    instanceId, userIds, usernames, System.currentTimeMillis()));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("广播用户缓存失效失败: {}", e.getMessage());
+            failedCounter.increment();
+            return;
+        }
+        for (ServiceInstance instance : instances) {
+            send(instance, body);
+        }
+    }
+    
+    /**
+     * 是否为本实例发出的消息
+     */
+    public boolean isLocal(CacheInvalidation invalidation) {
+        return instanceId.equals(invalidation.origin());
+    }
+    
+    /**
+     * 获取广播统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("instanceId", instanceId);
+        statistics.put("delivered", (long) deliveredCounter.count());
+        statistics.put("failed", (long) failedCounter.count());
+        statistics.put("averageDeliveryMillis", deliveryTimer.mean(TimeUnit.MILLISECONDS));
+        return statistics;
+    }
+    
+    private void send(ServiceInstance instance, byte[] body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(instance.getUri() + INVALIDATION_PATH))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        long start = System.nanoTime();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    deliveryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (error == null && response.statusCode() / 100 == 2) {
+                        deliveredCounter.increment();
+                    } else {
+                        failedCounter.increment();
+                        log.warn("向实例 {} 发送用户缓存失效失败: {}", instance.getUri(),
+                                error != null ? error.getMessage() : "状态码 " + response.statusCode());
+                    }
+                });
+    }
+}
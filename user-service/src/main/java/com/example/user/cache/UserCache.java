@@ -0,0 +1,254 @@
+package com.example.user.cache;
+
+import com.example.user.dto.UserDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 用户查询的本地读穿缓存（按 ID 和按用户名各一份）
+ * 容量和写入后存活时间有上限；不存在的用户不缓存。
+ * 修改和删除在事务提交后先失效本实例，再广播给其他实例；
+ * 广播丢失时由 ttl 兜底，旧数据最多保留 ttl 时长
+ */
+@Component
+public class UserCache {
+    
+    // 单个缓存项的估算固定开销（缓存节点、DTO 对象、两个 LocalDateTime 等）
+    private static final long ENTRY_OVERHEAD_BYTES = 240;
+    
+    @Autowired
+    private CacheInvalidationBroadcaster broadcaster;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${user.cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${user.cache.max-size:10000}")
+    private long maxSize;
+    
+    @Value("${user.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+    
+    private Cache<Long, UserDto> byId;
+    private Cache<String, UserDto> byUsername;
+    private Timer invalidationLagTimer;
+    // 失效序号：每次失效前递增，批量加载据此判断加载期间是否发生过失效
+    private final AtomicLong invalidationSequence = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        byId = newCache();
+        byUsername = newCache();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "user.cache.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, byUsername, "user.cache.by-username");
+        registerHitRatio("by-id", byId);
+        registerHitRatio("by-username", byUsername);
+        Gauge.builder("user.cache.memory.bytes", this, UserCache::estimatedBytes)
+                .description("用户缓存估算占用的内存")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        invalidationLagTimer = Timer.builder("user.cache.invalidation.lag")
+                .description("其他实例发出失效到本实例生效的延迟")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 按 ID 查询，未命中时调用 loader 加载
+     */
+    public Optional<UserDto> getById(Long id, Function<Long, Optional<UserDto>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        return Optional.ofNullable(byId.get(id, key -> loader.apply(key).orElse(null)));
+    }
+    
+    /**
+     * 按 ID 批量查询，未命中的 ID 合并为一次 loader 调用；返回结果中不含不存在的用户
+     * 批量加载不像单键加载那样与失效互斥（Caffeine 的 getAll 先加载再普通写入），
+     * 因此加载期间发生过失效时本次结果不写入缓存；写入后再次检查，期间发生失效则撤回写入
+     */
+    public Map<Long, UserDto> getAllById(Collection<Long> ids, Function<Set<Long>, Map<Long, UserDto>> loader) {
+        if (!enabled) {
+            return loader.apply(Set.copyOf(ids));
+        }
+        Map<Long, UserDto> users = new HashMap<>(byId.getAllPresent(ids));
+        Set<Long> missing = new HashSet<>(ids);
+        missing.removeAll(users.keySet());
+        if (missing.isEmpty()) {
+            return users;
+        }
+        long sequence = invalidationSequence.get();
+        Map<Long, UserDto> loaded = loader.apply(missing);
+        users.putAll(loaded);
+        if (invalidationSequence.get() != sequence) {
+            return users;
+        }
+        loaded.forEach((id, user) -> byId.asMap().putIfAbsent(id, user));
+        if (invalidationSequence.get() != sequence) {
+            loaded.forEach((id, user) -> byId.asMap().remove(id, user));
+        }
+        return users;
+    }
+    
+    /**
+     * 按用户名查询，未命中时调用 loader 加载
+     */
+    public Optional<UserDto> getByUsername(String username, Function<String, Optional<UserDto>> loader) {
+        if (!enabled) {
+            return loader.apply(username);
+        }
+        return Optional.ofNullable(byUsername.get(username, key -> loader.apply(key).orElse(null)));
+    }
+    
+    /**
+     * 失效用户缓存：在事务中时于提交后执行，回滚则不失效；随后广播给其他实例
+     */
+    public void invalidate(Long id, String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateAndBroadcast(List.of(id), List.of(username));
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending created = new Pending();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UserCache.this);
+                    if (status == STATUS_COMMITTED) {
+                        invalidateAndBroadcast(created.userIds, created.usernames);
+                    }
+                }
+            });
+            pending = created;
+        }
+        pending.userIds.add(id);
+        pending.usernames.add(username);
+    }
+    
+    /**
+     * 应用其他实例广播的失效消息
+     */
+    public void apply(CacheInvalidation invalidation) {
+        if (broadcaster.isLocal(invalidation)) {
+            return;
+        }
+        evict(invalidation.userIds(), invalidation.usernames());
+        invalidationLagTimer.record(Math.max(0, System.currentTimeMillis() - invalidation.issuedAt()),
+                TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("maxSize", maxSize);
+        statistics.put("ttlSeconds", ttlSeconds);
+        statistics.put("byId", cacheStatistics(byId));
+        statistics.put("byUsername", cacheStatistics(byUsername));
+        statistics.put("estimatedBytes", estimatedBytes());
+        statistics.put("invalidationsReceived", invalidationLagTimer.count());
+        statistics.put("averageInvalidationLagMillis", invalidationLagTimer.mean(TimeUnit.MILLISECONDS));
+        statistics.put("broadcast", broadcaster.getStatistics());
+        return statistics;
+    }
+    
+    private void invalidateAndBroadcast(List<Long> userIds, List<String> usernames) {
+        evict(userIds, usernames);
+        broadcaster.broadcast(userIds, usernames);
+    }
+    
+    private void evict(List<Long> userIds, List<String> usernames) {
+        // 先递增序号再移除：单键加载中的同一键会等待加载完成后再移除，
+        // 批量加载则根据序号放弃或撤回写入（见 getAllById），都不会留下提交前读到的旧值
+        invalidationSequence.incrementAndGet();
+        byId.invalidateAll(userIds);
+        byUsername.invalidateAll(usernames);
+    }
+    
+    private <K> Cache<K, UserDto> newCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+    
+    private void registerHitRatio(String name, Cache<?, ?> cache) {
+        Gauge.builder("user.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", name)
+                .description("用户缓存命中率")
+                .register(meterRegistry);
+    }
+    
+    private static Map<String, Object> cacheStatistics(Cache<?, ?> cache) {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("size", cache.estimatedSize());
+        statistics.put("hitCount", cache.stats().hitCount());
+        statistics.put("missCount", cache.stats().missCount());
+        statistics.put("hitRatio", cache.stats().hitRate());
+        statistics.put("evictionCount", cache.stats().evictionCount());
+        return statistics;
+    }
+    
+    /**
+     * 估算缓存占用的内存：固定开销加字符串长度（按每字符两字节估算）
+     */
+    private long estimatedBytes() {
+        long bytes = 0;
+        for (UserDto user : byId.asMap().values()) {
+            bytes += estimateEntry(user);
+        }
+        for (Map.Entry<String, UserDto> entry : byUsername.asMap().entrySet()) {
+            // 与按 ID 缓存的同一用户共享字段字符串时，此处会略微高估
+            bytes += estimateEntry(entry.getValue()) + sizeOf(entry.getKey());
+        }
+        return bytes;
+    }
+    
+    private static long estimateEntry(UserDto user) {
+        return ENTRY_OVERHEAD_BYTES + sizeOf(user.getUsername()) + sizeOf(user.getEmail())
+                + sizeOf(user.getFullName()) + sizeOf(user.getPhoneNumber());
+    }
+    
+    private static long sizeOf(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+    
+    /**
+     * 一次事务内累积的待失效用户
+     */
+    private static final class Pending {
+        private final List<Long> userIds = new ArrayList<>();
+        private final List<String> usernames = new ArrayList<>();
+    }
+}
@@ -1,16 +1,32 @@
 package com.example.user.controller;
 
+import com.example.user.cache.CacheInvalidation;
+import com.example.user.cache.UserCache;
 import com.example.user.dto.UserDto;
+import com.example.user.dto.UserPage;
+import com.example.user.service.CredentialService;
 import com.example.user.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 用户控制器
@@ -23,6 +39,15 @@ public class UserController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private CredentialService credentialService;
+    
+    @Autowired
+    private UserCache userCache;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @Value("${app.name:用户服务}")
     private String appName;
     
@@ -43,12 +68,43 @@ public class UserController {
     }
     
     /**
-     * 获取所有用户
+     * 分页获取用户
+     * after 为上一页返回的 nextCursor，limit 超过上限时按上限处理
      */
     @GetMapping
-    public ResponseEntity<List<UserDto>> getAllUsers() {
-        List<UserDto> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<UserPage> getUsers(@RequestParam(required = false) Long after,
+                                             @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(userService.getUsers(after, limit));
+    }
+    
+    /**
+     * 导出全部用户（NDJSON，每行一个用户，不含密码）
+     * 边查询边写出，内存占用与用户数无关；客户端断开时停止查询
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        ObjectWriter jsonWriter = objectMapper.writerFor(UserDto.class);
+        StreamingResponseBody body = out -> {
+            OutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+            try {
+                userService.exportUsers(user -> {
+                    try {
+                        buffered.write(jsonWriter.writeValueAsBytes(user));
+                        buffered.write('\n');
+                        return true;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            buffered.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=users.ndjson")
+                .body(body);
     }
     
     /**
@@ -61,6 +117,20 @@ public class UserController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * 按ID批量获取用户（ids=1,2,3），只返回存在的用户
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<?> getUsersByIds(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(userService.getUsersByIds(ids));
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
     /**
      * 根据用户名获取用户
      */
@@ -73,23 +143,49 @@ public class UserController {
     
     /**
      * 创建用户
+     * 密码哈希在专用线程池中计算，哈希队列已满时返回 503
      */
     @PostMapping
-    public ResponseEntity<?> createUser(@RequestBody CreateUserRequest request) {
-        try {
-            UserDto user = userService.createUser(
-                    request.getUsername(),
-                    request.getEmail(),
-                    request.getPassword(),
-                    request.getFullName(),
-                    request.getPhoneNumber()
-            );
-            return ResponseEntity.status(HttpStatus.CREATED).body(user);
-        } catch (RuntimeException e) {
-            Map<String, String> error = new HashMap<>();
-            error.put("error", e.getMessage());
-            return ResponseEntity.badRequest().body(error);
-        }
+    public CompletableFuture<ResponseEntity<?>> createUser(@RequestBody CreateUserRequest request) {
+        return credentialService.register(
+                        request.getUsername(),
+                        request.getEmail(),
+                        request.getPassword(),
+                        request.getFullName(),
+                        request.getPhoneNumber())
+                .<ResponseEntity<?>>thenApply(user -> ResponseEntity.status(HttpStatus.CREATED).body(user))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof RejectedExecutionException) {
+                        return hasherBusy();
+                    }
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", cause.getMessage());
+                    return ResponseEntity.badRequest().body(error);
+                });
+    }
+    
+    /**
+     * 批量导入用户，返回每个用户的导入结果
+     */
+    @PostMapping("/bulk")
+    public CompletableFuture<ResponseEntity<?>> importUsers(@RequestBody BulkCreateUserRequest request) {
+        return credentialService.importUsers(request.getUsers())
+                .<ResponseEntity<?>>thenApply(results -> {
+                    long successCount = results.stream().filter(UserService.ImportResult::isSuccess).count();
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("total", results.size());
+                    response.put("successCount", successCount);
+                    response.put("failureCount", results.size() - successCount);
+                    response.put("results", results);
+                    return ResponseEntity.status(HttpStatus.CREATED).body(response);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", cause.getMessage());
+                    return ResponseEntity.badRequest().body(error);
+                });
     }
     
     /**
@@ -116,18 +212,54 @@ public class UserController {
     
     /**
      * 用户登录验证
+     * 密码校验在专用线程池中进行，不占用请求线程；哈希队列已满时返回 503
      */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest request) {
-        return userService.validateUser(request.getUsernameOrEmail(), request.getPassword())
-                .map(user -> {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("user", user);
-                    response.put("message", "登录成功");
-                    return ResponseEntity.ok(response);
-                })
-                .orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body(Map.of("error", "用户名或密码错误")));
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest request) {
+        return credentialService.login(request.getUsernameOrEmail(), request.getPassword())
+                .<ResponseEntity<?>>thenApply(result -> result
+                        .<ResponseEntity<?>>map(user -> {
+                            Map<String, Object> response = new HashMap<>();
+                            response.put("user", user);
+                            response.put("message", "登录成功");
+                            return ResponseEntity.ok(response);
+                        })
+                        .orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                                .body(Map.of("error", "用户名或密码错误"))))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof RejectedExecutionException) {
+                        return hasherBusy();
+                    }
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", cause.getMessage());
+                    return ResponseEntity.internalServerError().body(error);
+                });
+    }
+    
+    /**
+     * 接收其他实例广播的缓存失效消息（内部接口）
+     */
+    @PostMapping("/cache/invalidations")
+    public ResponseEntity<Void> invalidateCache(@RequestBody CacheInvalidation invalidation) {
+        userCache.apply(invalidation);
+        return ResponseEntity.noContent().build();
+    }
+    
+    /**
+     * 获取用户缓存统计信息
+     */
+    @GetMapping("/cache/statistics")
+    public ResponseEntity<Map<String, Object>> getCacheStatistics() {
+        return ResponseEntity.ok(userCache.getStatistics());
+    }
+    
+    private ResponseEntity<?> hasherBusy() {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "请求过多，请稍后重试");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
     }
     
     // 内部类定义请求对象
@@ -155,6 +287,13 @@ public class UserController {
         public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
     }
     
+    public static class BulkCreateUserRequest {
+        private List<UserService.NewUser> users;
+        
+        public List<UserService.NewUser> getUsers() { return users; }
+        public void setUsers(List<UserService.NewUser> users) { this.users = users; }
+    }
+    
     public static class UpdateUserRequest {
         private String fullName;
         private String phoneNumber;
@@ -0,0 +1,22 @@
+package com.example.user.dto;
+
+import java.util.List;
+
+/**
+ * 用户分页结果
+ * nextCursor 为下一页请求的 after 参数（本页最后一个用户ID），没有更多用户时为 null
+ */
+public class UserPage {
+    private final List<UserDto> users;
+    private final Long nextCursor;
+    
+    public UserPage(List<UserDto> users, Long nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+    
+    // Getters
+    public List<UserDto> getUsers() { return users; }
+    public Long getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return nextCursor != null; }
+}
@@ -1,11 +1,21 @@
 package com.example.user.repository;
 
+import com.example.user.dto.UserDto;
 import com.example.user.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 用户数据访问层
@@ -33,9 +43,59 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     boolean existsByEmail(String email);
     
+    /**
+     * 查询已存在的用户名
+     */
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+    
+    /**
+     * 查询已存在的邮箱
+     */
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+    
+    /**
+     * 读取全部用户的 [username, email]，用于重建唯一性过滤器（须在事务内消费并关闭）
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.username, u.email FROM User u")
+    Stream<Object[]> streamUsernamesAndEmails();
+    
+    /**
+     * 按ID键集分页：查询 ID 大于游标的用户，页大小由 Pageable 限定（不执行 count 查询）
+     * 直接投影为 DTO，不查询密码列，也不加载实体
+     */
+    @Query("SELECT new com.example.user.dto.UserDto(u.id, u.username, u.email, u.fullName, u.phoneNumber, "
+            + "u.createdAt, u.updatedAt) FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserDto> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * 按ID批量查询用户的 DTO 投影（不存在的ID不返回）
+     */
+    @Query("SELECT new com.example.user.dto.UserDto(u.id, u.username, u.email, u.fullName, u.phoneNumber, "
+            + "u.createdAt, u.updatedAt) FROM User u WHERE u.id IN :ids")
+    List<UserDto> findAllDtosById(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 按ID顺序流式读取全部用户的 DTO 投影，用于导出（须在事务内消费并关闭）
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.user.dto.UserDto(u.id, u.username, u.email, u.fullName, u.phoneNumber, "
+            + "u.createdAt, u.updatedAt) FROM User u ORDER BY u.id")
+    Stream<UserDto> streamForExport();
+    
     /**
      * 根据用户名或邮箱查找用户
      */
     @Query("SELECT u FROM User u WHERE u.username = ?1 OR u.email = ?1")
     Optional<User> findByUsernameOrEmail(String usernameOrEmail);
+    
+    /**
+     * 仅当存储的密码哈希仍为 expected 时替换为 replacement
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.password = :replacement WHERE u.id = :id AND u.password = :expected")
+    int replacePassword(@Param("id") Long id, @Param("expected") String expected,
+                        @Param("replacement") String replacement);
 }
@@ -0,0 +1,184 @@
+package com.example.user.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 密码哈希器
+ * bcrypt 计算在专用的固定大小线程池（默认等于 CPU 核数）中执行，前面是有界的准入队列；
+ * 队列已满时立即拒绝（RejectedExecutionException），登录洪峰只会占满哈希线程，不会拖慢其他接口。
+ * 校验时如果存储的哈希与当前配置的 cost 不同（或仍是旧的明文密码），同时计算新哈希供调用方替换
+ */
+@Component
+public class PasswordHasher {
+    
+    private static final String BCRYPT_PREFIX = "$2";
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${user.password.bcrypt-cost:10}")
+    private int cost;
+    
+    @Value("${user.password.hash-threads:0}")
+    private int hashThreads;
+    
+    @Value("${user.password.queue-capacity:256}")
+    private int queueCapacity;
+    
+    private BCryptPasswordEncoder encoder;
+    private ThreadPoolExecutor executor;
+    // 用户不存在时用于校验的哈希，使响应耗时与用户存在时一致
+    private String dummyHash;
+    
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private Timer queueWaitTimer;
+    private Counter rejectedCounter;
+    private Counter rehashCounter;
+    
+    @PostConstruct
+    public void init() {
+        encoder = new BCryptPasswordEncoder(cost);
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        dummyHash = encoder.encode("dummy-password");
+        
+        Gauge.builder("user.password.hasher.queue.depth", executor, e -> e.getQueue().size())
+                .description("等待计算的密码哈希任务数")
+                .register(meterRegistry);
+        Gauge.builder("user.password.hasher.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("正在计算的密码哈希任务数")
+                .register(meterRegistry);
+        queueWaitTimer = Timer.builder("user.password.hasher.wait")
+                .description("密码哈希任务在队列中的等待时间")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("user.password.hasher.rejected")
+                .description("因队列已满被拒绝的密码哈希任务数")
+                .register(meterRegistry);
+        rehashCounter = Counter.builder("user.password.rehashed")
+                .description("登录时按新 cost 重新计算的密码哈希数")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * 哈希线程数
+     */
+    public int getThreadCount() {
+        return executor.getCorePoolSize();
+    }
+    
+    /**
+     * 计算密码哈希
+     */
+    public CompletableFuture<String> hash(String rawPassword) {
+        return submit("hash", () -> encoder.encode(rawPassword));
+    }
+    
+    /**
+     * 校验密码；encodedPassword 为 null（用户不存在）时对占位哈希做同样的计算后返回不匹配
+     */
+    public CompletableFuture<Verification> verify(String rawPassword, String encodedPassword) {
+        return submit("verify", () -> {
+            if (encodedPassword == null) {
+                encoder.matches(rawPassword, dummyHash);
+                return new Verification(false, null);
+            }
+            boolean matched = isBcrypt(encodedPassword)
+                    ? encoder.matches(rawPassword, encodedPassword)
+                    : MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                            encodedPassword.getBytes(StandardCharsets.UTF_8));
+            if (!matched || !needsRehash(encodedPassword)) {
+                return new Verification(matched, null);
+            }
+            rehashCounter.increment();
+            return new Verification(true, encoder.encode(rawPassword));
+        });
+    }
+    
+    /**
+     * 存储的哈希是否需要按当前配置重新计算：非 bcrypt（旧的明文密码）或 cost 不同
+     */
+    public boolean needsRehash(String encodedPassword) {
+        if (!isBcrypt(encodedPassword)) {
+            return true;
+        }
+        // bcrypt 格式：$2a$10$...，第 4-5 位为 cost
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6)) != cost;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+    
+    private static boolean isBcrypt(String encodedPassword) {
+        return encodedPassword.startsWith(BCRYPT_PREFIX) && encodedPassword.length() == 60;
+    }
+    
+    private <T> CompletableFuture<T> submit(String operation, Supplier<T> task) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startedAt = System.nanoTime();
+                queueWaitTimer.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.get();
+                } finally {
+                    timer(operation).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    private Timer timer(String operation) {
+        return timers.computeIfAbsent(operation, op -> Timer.builder("user.password.hash")
+                .tag("operation", op)
+                .description("密码哈希计算耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+    }
+    
+    /**
+     * 校验结果；rehashed 不为空时表示应以新哈希替换存储的密码
+     */
+    public record Verification(boolean matched, String rehashed) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.user.service;
+
+import com.example.user.dto.UserDto;
+import com.example.user.entity.User;
+import com.example.user.repository.UserRepository;
+import com.example.user.security.PasswordHasher;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 凭证业务逻辑（注册、登录）
+ * 密码哈希和校验交给 PasswordHasher 的专用线程池，完成后在虚拟线程中写库，
+ * 请求线程和哈希线程都不会等待对方
+ */
+@Service
+public class CredentialService {
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PasswordHasher passwordHasher;
+    
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    /**
+     * 注册用户：先检查用户名和邮箱，避免为注定失败的请求计算哈希
+     */
+    public CompletableFuture<UserDto> register(String username, String email, String password,
+                                               String fullName, String phoneNumber) {
+        try {
+            if (password == null || password.isEmpty()) {
+                throw new RuntimeException("密码不能为空");
+            }
+            userService.checkAvailable(username, email);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return passwordHasher.hash(password)
+                .thenApplyAsync(hash -> userService.createUser(username, email, hash, fullName, phoneNumber), executor);
+    }
+    
+    /**
+     * 批量导入用户，返回每个用户的导入结果
+     * 密码哈希最多占用一半哈希线程（至少一个），为登录和单个注册保留计算能力
+     */
+    public CompletableFuture<List<UserService.ImportResult>> importUsers(List<UserService.NewUser> users) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<UserService.ImportResult> results = userService.prepareImport(users);
+            String[] passwordHashes = new String[users.size()];
+            Semaphore inFlight = new Semaphore(Math.max(1, passwordHasher.getThreadCount() / 2));
+            List<CompletableFuture<Void>> hashing = new ArrayList<>();
+            for (UserService.ImportResult result : results) {
+                if (!result.isPending()) {
+                    continue;
+                }
+                int index = result.getIndex();
+                inFlight.acquireUninterruptibly();
+                hashing.add(passwordHasher.hash(users.get(index).getPassword()).handle((hash, e) -> {
+                    inFlight.release();
+                    if (e == null) {
+                        passwordHashes[index] = hash;
+                    } else {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        result.fail(cause instanceof RejectedExecutionException
+                                ? "请求过多，请稍后重试" : cause.getMessage());
+                    }
+                    return null;
+                }));
+            }
+            CompletableFuture.allOf(hashing.toArray(new CompletableFuture[0])).join();
+            userService.insertUsers(users, passwordHashes, results);
+            return results;
+        }, executor);
+    }
+    
+    /**
+     * 验证用户登录；存储的哈希 cost 与当前配置不同时，校验通过后替换为新哈希
+     */
+    public CompletableFuture<Optional<UserDto>> login(String usernameOrEmail, String password) {
+        if (usernameOrEmail == null || password == null) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        Optional<User> user = userRepository.findByUsernameOrEmail(usernameOrEmail);
+        String encodedPassword = user.map(User::getPassword).orElse(null);
+        return passwordHasher.verify(password, encodedPassword)
+                .thenApplyAsync(verification -> {
+                    if (!verification.matched()) {
+                        return Optional.empty();
+                    }
+                    User matched = user.get();
+                    if (verification.rehashed() != null) {
+                        userService.replacePasswordHash(matched.getId(), encodedPassword, verification.rehashed());
+                    }
+                    return Optional.of(userService.convertToDto(matched));
+                }, executor);
+    }
+}
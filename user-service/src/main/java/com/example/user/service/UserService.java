@@ -1,15 +1,36 @@
 package com.example.user.service;
 
+import com.example.user.cache.UserCache;
 import com.example.user.dto.UserDto;
+import com.example.user.dto.UserPage;
 import com.example.user.entity.User;
 import com.example.user.repository.UserRepository;
+import com.example.user.uniqueness.UserUniquenessFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 用户业务服务类
@@ -18,88 +39,351 @@ import java.util.stream.Collectors;
 @Transactional
 public class UserService {
     
+    // 每个事务插入的用户数，与 hibernate.jdbc.batch_size 保持一致
+    private static final int INSERT_CHUNK_SIZE = 50;
+    // 批量唯一性查询 IN 列表的最大长度
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+    
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private UserUniquenessFilter uniquenessFilter;
+    
+    @Autowired
+    private UserCache userCache;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${user.bulk.max-size:1000}")
+    private int maxBulkSize;
+    
+    @Value("${user.query.max-page-size:500}")
+    private int maxPageSize;
+    
+    @Value("${user.query.max-batch-size:500}")
+    private int maxBatchSize;
+    
     /**
-     * 获取所有用户
+     * 分页获取用户（按ID键集分页，多取一条判断是否还有下一页）
      */
-    public List<UserDto> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public UserPage getUsers(Long afterId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        long cursor = afterId != null ? afterId : 0L;
+        List<UserDto> users = userRepository.findPageAfter(cursor, PageRequest.of(0, pageSize + 1));
+        if (users.size() <= pageSize) {
+            return new UserPage(users, null);
+        }
+        List<UserDto> content = users.subList(0, pageSize);
+        return new UserPage(content, content.get(pageSize - 1).getId());
     }
     
     /**
-     * 根据ID获取用户
+     * 流式导出用户：从数据库游标逐行读取 DTO 投影交给 sink，不在内存中累积结果；
+     * sink 返回 false（例如客户端已断开）时停止读取。返回已读取的行数
      */
+    @Transactional(readOnly = true)
+    public long exportUsers(Predicate<UserDto> sink) {
+        long rows = 0;
+        try (Stream<UserDto> stream = userRepository.streamForExport()) {
+            Iterator<UserDto> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                rows++;
+                if (!sink.test(iterator.next())) {
+                    break;
+                }
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * 根据ID获取用户（读穿缓存，命中时不开启事务）
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<UserDto> getUserById(Long id) {
-        return userRepository.findById(id)
-                .map(this::convertToDto);
+        return userCache.getById(id, key -> userRepository.findById(key)
+                .map(this::convertToDto));
     }
     
     /**
-     * 根据用户名获取用户
+     * 按ID批量获取用户，按请求的ID顺序返回，不存在的用户不返回
+     * 已缓存的用户直接返回，其余用户合并为一次 IN 查询
      */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<UserDto> getUsersByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new RuntimeException("用户ID列表不能为空");
+        }
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+        if (uniqueIds.size() > maxBatchSize) {
+            throw new RuntimeException("单次最多查询 " + maxBatchSize + " 个用户");
+        }
+        Map<Long, UserDto> users = userCache.getAllById(uniqueIds, missing ->
+                userRepository.findAllDtosById(missing).stream()
+                        .collect(Collectors.toMap(UserDto::getId, Function.identity())));
+        List<UserDto> result = new ArrayList<>(users.size());
+        for (Long id : uniqueIds) {
+            UserDto user = users.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 根据用户名获取用户（读穿缓存，命中时不开启事务）
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<UserDto> getUserByUsername(String username) {
-        return userRepository.findByUsername(username)
-                .map(this::convertToDto);
+        return userCache.getByUsername(username, key -> userRepository.findByUsername(key)
+                .map(this::convertToDto));
     }
     
     /**
-     * 创建用户
+     * 检查用户名和邮箱是否已存在
+     * 过滤器判定一定不存在时不查询数据库，最终以唯一约束为准
      */
-    public UserDto createUser(String username, String email, String password, String fullName, String phoneNumber) {
-        // 检查用户名和邮箱是否已存在
-        if (userRepository.existsByUsername(username)) {
-            throw new RuntimeException("用户名已存在: " + username);
+    @Transactional(readOnly = true)
+    public void checkAvailable(String username, String email) {
+        if (uniquenessFilter.mightContainUsername(username)) {
+            if (userRepository.existsByUsername(username)) {
+                throw new RuntimeException("用户名已存在: " + username);
+            }
+            uniquenessFilter.recordFalsePositives(1);
         }
-        if (userRepository.existsByEmail(email)) {
-            throw new RuntimeException("邮箱已存在: " + email);
+        if (uniquenessFilter.mightContainEmail(email)) {
+            if (userRepository.existsByEmail(email)) {
+                throw new RuntimeException("邮箱已存在: " + email);
+            }
+            uniquenessFilter.recordFalsePositives(1);
         }
-        
-        User user = new User(username, email, password, fullName);
+    }
+    
+    /**
+     * 创建用户（passwordHash 为已计算好的密码哈希，见 CredentialService）
+     * 唯一性由调用方预先检查，并发创建同名用户时由唯一约束拒绝
+     */
+    public UserDto createUser(String username, String email, String passwordHash, String fullName, String phoneNumber) {
+        User user = new User(username, email, passwordHash, fullName);
         user.setPhoneNumber(phoneNumber);
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateError(e, username, email);
+        }
+        uniquenessFilter.add(username, email);
         return convertToDto(savedUser);
     }
     
     /**
-     * 更新用户信息
+     * 批量导入第一步：校验每行数据，检查导入列表内部以及与已有用户的重复
+     * 只对过滤器判定可能存在的用户名和邮箱查询数据库，且按块合并为 IN 查询
+     */
+    @Transactional(readOnly = true)
+    public List<ImportResult> prepareImport(List<NewUser> users) {
+        if (users == null || users.isEmpty()) {
+            throw new RuntimeException("用户列表不能为空");
+        }
+        if (users.size() > maxBulkSize) {
+            throw new RuntimeException("单次最多导入 " + maxBulkSize + " 个用户");
+        }
+        
+        List<ImportResult> results = new ArrayList<>(users.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> maybeUsernames = new HashSet<>();
+        Set<String> maybeEmails = new HashSet<>();
+        for (int i = 0; i < users.size(); i++) {
+            NewUser user = users.get(i);
+            ImportResult result = new ImportResult(i, user.getUsername());
+            results.add(result);
+            String error = validate(user);
+            if (error != null) {
+                result.fail(error);
+            } else if (!usernames.add(user.getUsername())) {
+                result.fail("用户名在导入列表中重复: " + user.getUsername());
+            } else if (!emails.add(user.getEmail())) {
+                result.fail("邮箱在导入列表中重复: " + user.getEmail());
+            } else {
+                if (uniquenessFilter.mightContainUsername(user.getUsername())) {
+                    maybeUsernames.add(user.getUsername());
+                }
+                if (uniquenessFilter.mightContainEmail(user.getEmail())) {
+                    maybeEmails.add(user.getEmail());
+                }
+            }
+        }
+        
+        Set<String> takenUsernames = findExisting(maybeUsernames, userRepository::findExistingUsernames);
+        Set<String> takenEmails = findExisting(maybeEmails, userRepository::findExistingEmails);
+        uniquenessFilter.recordFalsePositives(maybeUsernames.size() - takenUsernames.size()
+                + maybeEmails.size() - takenEmails.size());
+        for (ImportResult result : results) {
+            if (!result.isPending()) {
+                continue;
+            }
+            NewUser user = users.get(result.getIndex());
+            if (takenUsernames.contains(user.getUsername())) {
+                result.fail("用户名已存在: " + user.getUsername());
+            } else if (takenEmails.contains(user.getEmail())) {
+                result.fail("邮箱已存在: " + user.getEmail());
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * 批量导入第二步：按块插入仍待处理的行（passwordHashes 与 users 下标对应）
+     * 每块一个事务、一次 JDBC 批量插入；某块违反唯一约束（并发写入）时逐行重试，得到每行的结果
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void insertUsers(List<NewUser> users, String[] passwordHashes, List<ImportResult> results) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        List<Integer> chunk = new ArrayList<>(INSERT_CHUNK_SIZE);
+        for (ImportResult result : results) {
+            if (result.isPending()) {
+                chunk.add(result.getIndex());
+                if (chunk.size() == INSERT_CHUNK_SIZE) {
+                    insertChunk(template, chunk, users, passwordHashes, results);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(template, chunk, users, passwordHashes, results);
+        }
+    }
+    
+    /**
+     * 更新用户信息，提交后失效所有实例的缓存
      */
     public Optional<UserDto> updateUser(Long id, String fullName, String phoneNumber) {
         return userRepository.findById(id)
                 .map(user -> {
                     if (fullName != null) user.setFullName(fullName);
                     if (phoneNumber != null) user.setPhoneNumber(phoneNumber);
+                    userCache.invalidate(user.getId(), user.getUsername());
                     return convertToDto(userRepository.save(user));
                 });
     }
     
     /**
-     * 删除用户
+     * 删除用户，提交后失效所有实例的缓存
      */
     public boolean deleteUser(Long id) {
-        if (userRepository.existsById(id)) {
-            userRepository.deleteById(id);
-            return true;
+        return userRepository.findById(id)
+                .map(user -> {
+                    userRepository.delete(user);
+                    userCache.invalidate(user.getId(), user.getUsername());
+                    return true;
+                })
+                .orElse(false);
+    }
+    
+    /**
+     * 替换密码哈希；存储的哈希已被并发修改时不替换
+     */
+    public boolean replacePasswordHash(Long id, String expectedHash, String newHash) {
+        return userRepository.replacePassword(id, expectedHash, newHash) > 0;
+    }
+    
+    private void insertChunk(TransactionTemplate template, List<Integer> chunk, List<NewUser> users,
+                             String[] passwordHashes, List<ImportResult> results) {
+        try {
+            List<User> saved = template.execute(status -> {
+                List<User> entities = new ArrayList<>(chunk.size());
+                for (int index : chunk) {
+                    User user = toEntity(users.get(index), passwordHashes[index]);
+                    entityManager.persist(user);
+                    entities.add(user);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                return entities;
+            });
+            for (int i = 0; i < chunk.size(); i++) {
+                results.get(chunk.get(i)).succeed(saved.get(i));
+                uniquenessFilter.add(saved.get(i).getUsername(), saved.get(i).getEmail());
+            }
+        } catch (RuntimeException e) {
+            for (int index : chunk) {
+                NewUser user = users.get(index);
+                try {
+                    User saved = template.execute(status ->
+                            userRepository.saveAndFlush(toEntity(user, passwordHashes[index])));
+                    results.get(index).succeed(saved);
+                    uniquenessFilter.add(saved.getUsername(), saved.getEmail());
+                } catch (DataIntegrityViolationException ex) {
+                    results.get(index).fail(duplicateError(ex, user.getUsername(), user.getEmail()).getMessage());
+                } catch (RuntimeException ex) {
+                    results.get(index).fail(ex.getMessage());
+                }
+            }
+        }
+    }
+    
+    private User toEntity(NewUser newUser, String passwordHash) {
+        User user = new User(newUser.getUsername(), newUser.getEmail(), passwordHash, newUser.getFullName());
+        user.setPhoneNumber(newUser.getPhoneNumber());
+        return user;
+    }
+    
+    private static String validate(NewUser user) {
+        if (user.getUsername() == null || user.getUsername().isBlank()) {
+            return "用户名不能为空";
+        }
+        if (user.getEmail() == null || user.getEmail().isBlank()) {
+            return "邮箱不能为空";
+        }
+        if (user.getPassword() == null || user.getPassword().isEmpty()) {
+            return "密码不能为空";
         }
-        return false;
+        return null;
+    }
+    
+    private static Set<String> findExisting(Set<String> values, Function<Collection<String>, List<String>> query) {
+        Set<String> existing = new HashSet<>();
+        List<String> chunk = new ArrayList<>(LOOKUP_CHUNK_SIZE);
+        for (String value : values) {
+            chunk.add(value);
+            if (chunk.size() == LOOKUP_CHUNK_SIZE) {
+                existing.addAll(query.apply(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            existing.addAll(query.apply(chunk));
+        }
+        return existing;
     }
     
     /**
-     * 验证用户登录
+     * 根据违反的唯一约束生成错误信息
      */
-    public Optional<UserDto> validateUser(String usernameOrEmail, String password) {
-        return userRepository.findByUsernameOrEmail(usernameOrEmail)
-                .filter(user -> user.getPassword().equals(password))
-                .map(this::convertToDto);
+    private static RuntimeException duplicateError(DataIntegrityViolationException e, String username, String email) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toUpperCase();
+        if (message.contains("UK_USERS_USERNAME")) {
+            return new RuntimeException("用户名已存在: " + username);
+        }
+        if (message.contains("UK_USERS_EMAIL")) {
+            return new RuntimeException("邮箱已存在: " + email);
+        }
+        return e;
     }
     
     /**
      * 转换实体为DTO
      */
-    private UserDto convertToDto(User user) {
+    UserDto convertToDto(User user) {
         return new UserDto(
                 user.getId(),
                 user.getUsername(),
@@ -110,4 +394,68 @@ public class UserService {
                 user.getUpdatedAt()
         );
     }
+    
+    /**
+     * 批量导入的用户
+     */
+    public static class NewUser {
+        private String username;
+        private String email;
+        private String password;
+        private String fullName;
+        private String phoneNumber;
+        
+        // Getters and Setters
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+        
+        public String getEmail() { return email; }
+        public void setEmail(String email) { this.email = email; }
+        
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+        
+        public String getFullName() { return fullName; }
+        public void setFullName(String fullName) { this.fullName = fullName; }
+        
+        public String getPhoneNumber() { return phoneNumber; }
+        public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
+    }
+    
+    /**
+     * 批量导入中单个用户的结果
+     */
+    public static class ImportResult {
+        private final int index;
+        private final String username;
+        private boolean pending = true;
+        private boolean success;
+        private Long userId;
+        private String error;
+        
+        public ImportResult(int index, String username) {
+            this.index = index;
+            this.username = username;
+        }
+        
+        void succeed(User user) {
+            this.pending = false;
+            this.success = true;
+            this.userId = user.getId();
+        }
+        
+        void fail(String error) {
+            this.pending = false;
+            this.success = false;
+            this.error = error;
+        }
+        
+        boolean isPending() { return pending; }
+        
+        public int getIndex() { return index; }
+        public String getUsername() { return username; }
+        public boolean isSuccess() { return success; }
+        public Long getUserId() { return userId; }
+        public String getError() { return error; }
+    }
 }
@@ -0,0 +1,80 @@
+package com.example.user.uniqueness;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 字符串布隆过滤器
+ * mightContain 返回 false 时元素一定不存在；返回 true 时可能存在（误判率由容量和目标误判率决定）。
+ * 位数组为 AtomicLongArray，put 和 mightContain 可并发调用，无需加锁
+ */
+public class BloomFilter {
+    
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, (m + 63) / 64 * 64);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.bits = new AtomicLongArray((int) (bitCount / 64));
+    }
+    
+    public void put(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0
+                    && !bits.compareAndSet(word, current, current | mask)) {
+                // 其他线程修改了同一个字，重试
+            }
+        }
+    }
+    
+    public boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 位数组占用的字节数
+     */
+    public long sizeInBytes() {
+        return bitCount / 8;
+    }
+    
+    /**
+     * FNV-1a 64 位哈希
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+    
+    /**
+     * SplitMix64 混合函数，用于生成第二个哈希（双重哈希构造 k 个位置）
+     */
+    private static long mix(long value) {
+        long z = value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.user.uniqueness;
+
+import com.example.user.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * 用户名和邮箱的唯一性快速检查
+ * 布隆过滤器判定 "一定不存在" 时无需查询数据库；判定 "可能存在" 时再查询数据库确认。
+ * 过滤器只是快速路径，最终以数据库唯一约束为准（其他实例新建的用户不在本实例的过滤器中）。
+ * 启动时从用户表重建；新用户在事务提交后记入，删除的用户仍留在过滤器中，只会多一次数据库查询；
+ * 插入数超过容量时按两倍容量在后台重建，保持误判率
+ */
+@Component
+public class UserUniquenessFilter {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${user.uniqueness.expected-insertions:1000000}")
+    private long expectedInsertions;
+    
+    @Value("${user.uniqueness.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    private volatile Filters filters;
+    // 重建中的过滤器，重建期间的写入同时记入，避免切换后遗漏
+    private volatile Filters building;
+    // 写入持有读锁；重建发布 building 和切换过滤器时持有写锁，
+    // 保证每次写入要么在全表扫描开始前已提交，要么记入了 building
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // 扩容重建会阻塞在全表扫描上，放在专用线程而不是公共 ForkJoinPool
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-uniqueness-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private Counter usernameSkipped;
+    private Counter emailSkipped;
+    private Counter falsePositives;
+    
+    @PostConstruct
+    public void init() {
+        rebuild();
+        usernameSkipped = skippedCounter("username");
+        emailSkipped = skippedCounter("email");
+        falsePositives = Counter.builder("user.uniqueness.false-positives")
+                .description("过滤器判定可能存在、数据库确认不存在的次数")
+                .register(meterRegistry);
+        Gauge.builder("user.uniqueness.filter.bytes", this,
+                        filter -> filter.filters.usernames.sizeInBytes() + filter.filters.emails.sizeInBytes())
+                .description("唯一性过滤器占用的内存")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+    
+    /**
+     * 用户名可能已存在（false 表示一定不存在）
+     */
+    public boolean mightContainUsername(String username) {
+        boolean result = filters.usernames.mightContain(username);
+        if (!result) {
+            usernameSkipped.increment();
+        }
+        return result;
+    }
+    
+    /**
+     * 邮箱可能已存在（false 表示一定不存在）
+     */
+    public boolean mightContainEmail(String email) {
+        boolean result = filters.emails.mightContain(email);
+        if (!result) {
+            emailSkipped.increment();
+        }
+        return result;
+    }
+    
+    /**
+     * 记录误判次数（过滤器判定可能存在，数据库确认不存在）
+     */
+    public void recordFalsePositives(long count) {
+        falsePositives.increment(count);
+    }
+    
+    /**
+     * 记录新写入的用户，在事务中调用时于提交后记入
+     */
+    public void add(String username, String email) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            addCommitted(username, email);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addCommitted(username, email);
+            }
+        });
+    }
+    
+    /**
+     * 从用户表重建过滤器，容量取配置值和现有用户数两倍中的较大者
+     */
+    public synchronized void rebuild() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        long capacity = Math.max(expectedInsertions, userRepository.count() * 2);
+        Filters rebuilt = new Filters(capacity, falsePositiveRate);
+        lock.writeLock().lock();
+        try {
+            building = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        template.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = userRepository.streamUsernamesAndEmails()) {
+                rows.forEach(row -> {
+                    rebuilt.usernames.put((String) row[0]);
+                    rebuilt.emails.put((String) row[1]);
+                    rebuilt.insertions.incrementAndGet();
+                });
+            }
+        });
+        lock.writeLock().lock();
+        try {
+            filters = rebuilt;
+            building = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void addCommitted(String username, String email) {
+        Filters current;
+        lock.readLock().lock();
+        try {
+            Filters next = building;
+            if (next != null) {
+                next.usernames.put(username);
+                next.emails.put(email);
+                next.insertions.incrementAndGet();
+            }
+            current = filters;
+            current.usernames.put(username);
+            current.emails.put(email);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (current.insertions.incrementAndGet() > current.capacity && rebuilding.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(this::rebuild, rebuildExecutor).whenComplete((result, e) -> rebuilding.set(false));
+        }
+    }
+    
+    private Counter skippedCounter(String field) {
+        return Counter.builder("user.uniqueness.queries.skipped")
+                .tag("field", field)
+                .description("由过滤器判定一定不存在、省去的数据库查询次数")
+                .register(meterRegistry);
+    }
+    
+    private static final class Filters {
+        private final long capacity;
+        private final BloomFilter usernames;
+        private final BloomFilter emails;
+        private final AtomicLong insertions = new AtomicLong();
+        
+        private Filters(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.usernames = new BloomFilter(capacity, falsePositiveRate);
+            this.emails = new BloomFilter(capacity, falsePositiveRate);
+        }
+    }
+}